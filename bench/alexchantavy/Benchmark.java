@@ -0,0 +1,411 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * <p>Times the geometry kernels and the phases of the solver on reproducible {@link Fixture 
+ * polygons}.  Every benchmark is run on every fixture: the checked in polygon files and each 
+ * generated shape family at each size.</p>
+ * 
+ * <p>Each measurement first doubles a batch of calls until it takes a millisecond, warms up, and
+ * then reports the mean and standard deviation of the time per call over several iterations.  
+ * The results are printed as CSV with the columns <code>benchmark,family,n,ns_per_op,stddev</code>.
+ * A file written by <code>-out</code> may be given back as <code>-baseline</code> to a later 
+ * run, which then adds the ratio to the baseline and marks every result more than 
+ * <code>-threshold</code> percent slower as a regression.</p>
+ * 
+ * <pre>
+ * javac -d out src/alexchantavy/*.java bench/alexchantavy/*.java
+ * java -cp out alexchantavy.Benchmark -sizes 8,16,32 -out before.csv
+ * java -cp out alexchantavy.Benchmark -sizes 8,16,32 -baseline before.csv
+ * </pre>
+ * 
+ * <p>With the Vector API kernel of {@link EdgeBatch} compiled in and 
+ * <code>--add-modules jdk.incubator.vector</code> given to java, <code>batch.diagonalie</code>
+ * uses it and <code>batch.diagonalie.scalar</code> times the scalar loop on the same inputs, so
+ * the ratio of the two is the speedup of the vector lanes.</p>
+ * 
+ * <p>Options: <code>-sizes</code>, <code>-families</code> (names of {@link Fixture.Family} and 
+ * <code>files</code>), <code>-filter</code> (part of a benchmark name), <code>-fixtures</code> 
+ * (directory of polygon files), <code>-warmup</code>, <code>-iterations</code>, <code>-time</code> 
+ * (milliseconds per iteration), <code>-exhaustive</code> (largest n for the exhaustive search), 
+ * <code>-out</code>, <code>-baseline</code> and <code>-threshold</code>.</p>
+ * @author Alex Chantavy
+ */
+public class Benchmark {
+	
+	/**
+	 * A call to be timed.  The result is folded into a sink so the JIT cannot drop the call.
+	 */
+	interface Operation {
+		/**
+		 * @param call The number of the call, used to step through the inputs
+		 * @return Any value that depends on the work done
+		 */
+		long run(int call);
+	}
+	
+	static volatile long sink;
+	
+	private int[] sizes = {8, 12, 16, 24, 32};
+	private String families = "files,convex,star,comb";
+	private String filter = "";
+	private File fixtureDirectory = new File("bench/fixtures");
+	private int warmup = 3;
+	private int iterations = 5;
+	private long iterationNanos = 200000000L;
+	private int exhaustiveMax = 12; // the exhaustive search takes exponential time
+	private File out = null;
+	private File baseline = null;
+	private double threshold = 10;
+	
+	private final HashMap<String, Double> baselineResults = new HashMap<String, Double>();
+	private PrintWriter writer = null;
+	private int regressions = 0;
+	
+	/**
+	 * Runs the benchmarks.
+	 * @param args The options described above
+	 * @throws IOException If a fixture, the baseline or the output cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		Benchmark benchmark = new Benchmark();
+		benchmark.parseArguments(args);
+		int regressions = benchmark.runAll();
+		if (regressions > 0) {
+			System.err.println(regressions + " regression(s) against " + benchmark.baseline);
+			System.exit(2);
+		}
+	}
+	
+	private void parseArguments(String[] args) {
+		for (int i = 0; i < args.length; i += 2) {
+			if (i + 1 == args.length) {
+				throw new IllegalArgumentException("missing value for " + args[i]);
+			}
+			String value = args[i + 1];
+			if (args[i].equals("-sizes")) {
+				String[] parts = value.split(",");
+				sizes = new int[parts.length];
+				for (int k = 0; k < parts.length; k++) {
+					sizes[k] = Integer.parseInt(parts[k].trim());
+				}
+			}
+			else if (args[i].equals("-families")) families = value.toLowerCase();
+			else if (args[i].equals("-filter")) filter = value;
+			else if (args[i].equals("-fixtures")) fixtureDirectory = new File(value);
+			else if (args[i].equals("-warmup")) warmup = Integer.parseInt(value);
+			else if (args[i].equals("-iterations")) iterations = Integer.parseInt(value);
+			else if (args[i].equals("-time")) iterationNanos = Long.parseLong(value) * 1000000L;
+			else if (args[i].equals("-exhaustive")) exhaustiveMax = Integer.parseInt(value);
+			else if (args[i].equals("-out")) out = new File(value);
+			else if (args[i].equals("-baseline")) baseline = new File(value);
+			else if (args[i].equals("-threshold")) threshold = Double.parseDouble(value);
+			else throw new IllegalArgumentException("unknown option " + args[i]);
+		}
+	}
+	
+	/**
+	 * Runs every benchmark on every selected fixture.
+	 * @return The number of regressions against the baseline
+	 */
+	private int runAll() throws IOException {
+		if (baseline != null) {
+			readBaseline();
+		}
+		ArrayList<Fixture> fixtures = new ArrayList<Fixture>();
+		for (String family : families.split(",")) {
+			family = family.trim();
+			if (family.equals("files")) {
+				fixtures.addAll(Fixture.loadAll(fixtureDirectory));
+			}
+			else {
+				for (int n : sizes) {
+					fixtures.add(Fixture.generate(Fixture.Family.valueOf(family.toUpperCase()), n));
+				}
+			}
+		}
+		if (out != null) {
+			writer = new PrintWriter(new FileWriter(out));
+			writer.println("benchmark,family,n,ns_per_op,stddev");
+		}
+		System.err.println("batch.diagonalie computes " + (EdgeBatch.VECTOR != null ? 
+				EdgeBatch.VECTOR.lanes() + " edges at once with the Vector API" : "one edge at a time"));
+		System.out.println("benchmark,family,n,ns_per_op,stddev" + (baseline != null ? ",ratio" : ""));
+		try {
+			for (Fixture fixture : fixtures) {
+				runFixture(fixture);
+			}
+		}
+		finally {
+			if (writer != null) {
+				writer.close();
+			}
+		}
+		return regressions;
+	}
+	
+	/**
+	 * Times every benchmark on one polygon.  The inputs of the kernels are prepared up front so 
+	 * that only the kernel itself is timed.
+	 */
+	private void runFixture(Fixture fixture) {
+		final Vertex[] vertices = fixture.getVertices();
+		final ArrayList<Chord> boundary = fixture.getBoundary();
+		final int n = vertices.length;
+		
+		// every pair of nonadjacent vertices, whether or not it is a diagonal
+		final ArrayList<Chord> candidates = new ArrayList<Chord>();
+		for (int i = 0; i < n; i++) {
+			for (int j = i + 2; j < n; j++) {
+				if (i != 0 || j != n - 1) {
+					candidates.add(new Chord(vertices[i], vertices[j]));
+				}
+			}
+		}
+		final ArrayList<Chord> diagonals = Polygon.generateAllDiagonals(vertices, boundary);
+		final int count = candidates.size();
+		final ChordSet diagonalSet = new ChordSet(diagonals);
+		final PackedPolygon packed = new PackedPolygon(vertices);
+		final EdgeBatch batch = new EdgeBatch(packed);
+		final EdgeBatch scalarBatch = new EdgeBatch(packed, false);
+		final EdgeGrid grid = new EdgeGrid(packed);
+		final long[] diagonalKeys = new DiagonalMatrix(packed).toKeys();
+		final int[] pairs = new int[2 * count];
+		for (int c = 0; c < count; c++) {
+			pairs[2 * c] = candidates.get(c).v1.getID();
+			pairs[2 * c + 1] = candidates.get(c).v2.getID();
+		}
+		
+		measure("vertex.direction", fixture, new Operation() {
+			public long run(int call) {
+				int i = call % n;
+				return (long) Vertex.direction(vertices[i], vertices[(i + 1) % n], vertices[(i + 2) % n]);
+			}
+		});
+		measure("chord.intersects", fixture, new Operation() {
+			public long run(int call) {
+				// the pairs diagonalie tests: a candidate against a boundary edge
+				Chord chord = candidates.get(call % count);
+				return Chord.intersects(chord, boundary.get((call / count) % n)) ? 1 : 0;
+			}
+		});
+		measure("chord.diagonal", fixture, new Operation() {
+			public long run(int call) {
+				return Chord.diagonal(candidates.get(call % count), vertices, boundary) ? 1 : 0;
+			}
+		});
+		measure("packed.diagonalie", fixture, new Operation() {
+			public long run(int call) {
+				int c = 2 * (call % count);
+				return packed.diagonalie(pairs[c], pairs[c + 1]) ? 1 : 0;
+			}
+		});
+		measure("batch.diagonalie", fixture, new Operation() {
+			public long run(int call) {
+				int c = 2 * (call % count);
+				return batch.diagonalie(pairs[c], pairs[c + 1]) ? 1 : 0;
+			}
+		});
+		measure("batch.diagonalie.scalar", fixture, new Operation() {
+			public long run(int call) {
+				int c = 2 * (call % count);
+				return scalarBatch.diagonalie(pairs[c], pairs[c + 1]) ? 1 : 0;
+			}
+		});
+		measure("grid.diagonalie", fixture, new Operation() {
+			public long run(int call) {
+				int c = 2 * (call % count);
+				return grid.diagonalie(pairs[c], pairs[c + 1]) ? 1 : 0;
+			}
+		});
+		measure("chord.contains", fixture, new Operation() {
+			public long run(int call) {
+				return Chord.contains(diagonals, candidates.get(call % count)) ? 1 : 0;
+			}
+		});
+		measure("chordset.contains", fixture, new Operation() {
+			public long run(int call) {
+				return diagonalSet.contains(candidates.get(call % count)) ? 1 : 0;
+			}
+		});
+		measure("polygon.generateAllDiagonals", fixture, new Operation() {
+			public long run(int call) {
+				return Polygon.generateAllDiagonals(vertices, boundary).size();
+			}
+		});
+		measure("polygon.sort", fixture, new Operation() {
+			public long run(int call) {
+				ArrayList<Chord> sorted = new ArrayList<Chord>(diagonals);
+				Collections.sort(sorted);
+				return sorted.size();
+			}
+		});
+		measure("lengthsort.sort", fixture, new Operation() {
+			public long run(int call) {
+				return LengthSort.sort(packed, diagonalKeys).length;
+			}
+		});
+		if (n <= exhaustiveMax) {
+			measure("polygon.optimalTriangulation", fixture, new Operation() {
+				public long run(int call) {
+					return Polygon.optimalTriangulation(vertices, boundary).size();
+				}
+			});
+		}
+		measure("solver.branchAndBound", fixture, solver(fixture, TriangulationSolver.Strategy.BRANCH_AND_BOUND));
+		measure("solver.threshold", fixture, solver(fixture, TriangulationSolver.Strategy.THRESHOLD));
+		measure("solver.intervalDp", fixture, solver(fixture, TriangulationSolver.Strategy.INTERVAL_DP));
+		measure("objective.allObjectives", fixture, new Operation() {
+			public long run(int call) {
+				return new ObjectiveTriangulator(vertices).solve(ObjectiveTriangulator.Objective.values()).size();
+			}
+		});
+		measure("simplicity.sweep", fixture, new Operation() {
+			public long run(int call) {
+				return SimplicitySweep.isSimple(packed) ? 1 : 0;
+			}
+		});
+		measure("monotone.triangulate", fixture, new Operation() {
+			public long run(int call) {
+				return MonotoneTriangulator.diagonals(vertices).length;
+			}
+		});
+	}
+	
+	private static Operation solver(Fixture fixture, TriangulationSolver.Strategy strategy) {
+		final TriangulationSolver solver = new TriangulationSolver(fixture.getVertices(), fixture.getBoundary());
+		solver.setStrategy(strategy);
+		return new Operation() {
+			public long run(int call) {
+				try {
+					return solver.solve().size();
+				}
+				catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+	}
+	
+	/**
+	 * Times one benchmark and reports the result, unless the filter excludes it.
+	 */
+	private void measure(String name, Fixture fixture, Operation operation) {
+		if (!name.contains(filter)) {
+			return;
+		}
+		// grow the batch until it is long enough to time with nanoTime
+		int batch = 1;
+		while (time(operation, batch) < 1000000L && batch < (1 << 30)) {
+			batch *= 2;
+		}
+		for (int i = 0; i < warmup; i++) {
+			iteration(operation, batch);
+		}
+		double sum = 0, sumOfSquares = 0;
+		for (int i = 0; i < iterations; i++) {
+			double nanosPerOp = iteration(operation, batch);
+			sum += nanosPerOp;
+			sumOfSquares += nanosPerOp * nanosPerOp;
+		}
+		double mean = sum / iterations;
+		double stddev = Math.sqrt(Math.max(0, sumOfSquares / iterations - mean * mean));
+		report(name, fixture, mean, stddev);
+	}
+	
+	/**
+	 * Runs batches for one iteration's worth of time.
+	 * @return The time per call in nanoseconds
+	 */
+	private double iteration(Operation operation, int batch) {
+		long elapsed = 0, calls = 0;
+		while (elapsed < iterationNanos) {
+			elapsed += time(operation, batch);
+			calls += batch;
+		}
+		return (double) elapsed / calls;
+	}
+	
+	private static long time(Operation operation, int batch) {
+		long result = 0;
+		long start = System.nanoTime();
+		for (int call = 0; call < batch; call++) {
+			result += operation.run(call);
+		}
+		long elapsed = System.nanoTime() - start;
+		sink = result;
+		return elapsed;
+	}
+	
+	private void report(String name, Fixture fixture, double mean, double stddev) {
+		String key = name + "," + fixture.getFamily() + "," + fixture.size();
+		String line = key + String.format(Locale.US, ",%.1f,%.1f", mean, stddev);
+		if (writer != null) {
+			writer.println(line);
+			writer.flush();
+		}
+		Double before = baselineResults.get(key);
+		if (before != null) {
+			double ratio = mean / before;
+			line += String.format(Locale.US, ",%.3f", ratio);
+			if (ratio > 1 + threshold / 100) {
+				line += ",REGRESSION";
+				regressions++;
+			}
+		}
+		System.out.println(line);
+	}
+	
+	/**
+	 * Reads the mean of every result of an earlier run.
+	 */
+	private void readBaseline() throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(baseline));
+		try {
+			String line = reader.readLine(); // header
+			while ((line = reader.readLine()) != null) {
+				String[] parts = line.split(",");
+				if (parts.length >= 4) {
+					baselineResults.put(parts[0] + "," + parts[1] + "," + parts[2], Double.valueOf(parts[3]));
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+	}
+}
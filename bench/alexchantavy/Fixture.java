@@ -0,0 +1,181 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * <p>Reproducible polygons for {@link Benchmark}.  A fixture is either one of the polygon text 
+ * files checked in under <code>bench/fixtures</code> or a polygon generated from a shape family, 
+ * a size and a fixed seed, so every run measures exactly the same input.</p>
+ * 
+ * <p>All generated polygons are simple and listed in clockwise order, as the rest of the 
+ * package expects.</p>
+ * @author Alex Chantavy
+ */
+public class Fixture {
+	
+	/**
+	 * The kinds of generated polygons.
+	 */
+	public enum Family {
+		/** A regular polygon: every pair of nonadjacent vertices is a diagonal. */
+		CONVEX,
+		/** A star shaped polygon with random radii, like the polygons drawn in the applet. */
+		STAR,
+		/** A comb with long thin teeth: few diagonals, many of them blocked. */
+		COMB
+	}
+	
+	private static final long SEED = 311L; // fixed so that runs can be compared
+	
+	private final String family;
+	private final Vertex[] vertices;
+	private final ArrayList<Chord> boundary;
+	
+	private Fixture(String family, Vertex[] vertices) {
+		this.family = family;
+		this.vertices = vertices;
+		this.boundary = new ArrayList<Chord>();
+		for (int i = 0; i < vertices.length; i++) {
+			boundary.add(new Chord(vertices[i], vertices[(i + 1) % vertices.length]));
+		}
+	}
+	
+	/**
+	 * Generates a polygon of the given family.
+	 * @param family The shape family
+	 * @param n The number of vertices.  A comb rounds it down to a multiple of 4.
+	 * @return The polygon
+	 */
+	public static Fixture generate(Family family, int n) {
+		if (n < 3) {
+			throw new IllegalArgumentException("n must be at least 3: " + n);
+		}
+		Vertex[] vertices;
+		switch (family) {
+		case CONVEX:
+			vertices = new Vertex[n];
+			for (int i = 0; i < n; i++) {
+				double angle = -2 * Math.PI * i / n;
+				vertices[i] = new Vertex(10 * Math.cos(angle), 10 * Math.sin(angle), i);
+			}
+			break;
+		case STAR:
+			Random random = new Random(SEED + n);
+			vertices = new Vertex[n];
+			for (int i = 0; i < n; i++) {
+				double angle = -2 * Math.PI * (i + 0.5 * random.nextDouble()) / n;
+				double radius = 2 + 8 * random.nextDouble();
+				vertices[i] = new Vertex(radius * Math.cos(angle), radius * Math.sin(angle), i);
+			}
+			break;
+		default:
+			// up the left side, then each tooth goes up, across and back down to the spine
+			int teeth = Math.max(1, (n - 4) / 4);
+			vertices = new Vertex[4 * teeth + 4];
+			int k = 0;
+			vertices[k] = new Vertex(0, 0, k++);
+			for (int t = 0; t < teeth; t++) {
+				vertices[k] = new Vertex(2 * t, 10, k++);
+				vertices[k] = new Vertex(2 * t + 1, 10, k++);
+				vertices[k] = new Vertex(2 * t + 1, 1, k++);
+				vertices[k] = new Vertex(2 * t + 2, 1, k++);
+			}
+			vertices[k] = new Vertex(2 * teeth, 10, k++); // the last tooth is also the right side
+			vertices[k] = new Vertex(2 * teeth + 1, 10, k++);
+			vertices[k] = new Vertex(2 * teeth + 1, 0, k++);
+			break;
+		}
+		return new Fixture(family.name().toLowerCase(), vertices);
+	}
+	
+	/**
+	 * Reads a checked in polygon file with {@link PolygonModel#parseLarge(String)}.
+	 * @param file The polygon text file
+	 * @return The polygon, named after the file
+	 * @throws IOException If the file cannot be read or is not a valid polygon
+	 */
+	public static Fixture load(File file) throws IOException {
+		PolygonModel model = PolygonModel.parseLarge(file.toURI().toString());
+		if (!model.isValid()) {
+			throw new IOException("cannot read " + file + ": error code " + model.getCode());
+		}
+		String name = file.getName();
+		return new Fixture(name.substring(0, name.length() - ".txt".length()), model.getVertices());
+	}
+	
+	/**
+	 * Reads every polygon file in a directory, in name order.
+	 * @param directory The directory of fixtures
+	 * @return The polygons
+	 * @throws IOException If a file cannot be read or is not a valid polygon
+	 */
+	public static ArrayList<Fixture> loadAll(File directory) throws IOException {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			throw new IOException("no fixture directory " + directory);
+		}
+		java.util.Arrays.sort(files);
+		ArrayList<Fixture> fixtures = new ArrayList<Fixture>();
+		for (File file : files) {
+			if (file.getName().endsWith(".txt")) {
+				fixtures.add(load(file));
+			}
+		}
+		return fixtures;
+	}
+	
+	/**
+	 * @return The shape family, or the file name for checked in polygons
+	 */
+	public String getFamily() {
+		return family;
+	}
+	
+	/**
+	 * @return The number of vertices
+	 */
+	public int size() {
+		return vertices.length;
+	}
+	
+	/**
+	 * @return The vertices in clockwise order
+	 */
+	public Vertex[] getVertices() {
+		return vertices;
+	}
+	
+	/**
+	 * @return The boundary of the polygon
+	 */
+	public ArrayList<Chord> getBoundary() {
+		return boundary;
+	}
+}
@@ -27,7 +27,6 @@
 package alexchantavy;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.awt.*;
 import javax.swing.*;
 import javax.swing.event.*;
@@ -65,6 +64,9 @@ public class A4applet extends JApplet
 	static final int DRAW_POLYGON = 1;
 	static final int DRAW_DIAGS   = 2;
 	
+	// milliseconds between two combinations shown in the combination display
+	static final long COMBINATION_INTERVAL = 50;
+	
    	// UI components
 	private TextField url_field; 
 	private TextArea console;        //console area for status updates
@@ -84,6 +86,7 @@ public class A4applet extends JApplet
 	private Task task;
 	
    	//necessary global variables
+   	PolygonModel model;              // the polygon read from the URL
    	Vertex[] vertices;
    	Vertex[] verticesLocation        =  null; // used to adjust vertex coords for drawing
    	int taskStatus                   = CLEAR_SCREEN; // start the applet with a clear screen
@@ -160,15 +163,15 @@ public class A4applet extends JApplet
    	/**
    	 * Displays the given array of integers in a JTextField.
    	 * Used to show the user what combinations the algorithm is
-   	 * currently trying out
+   	 * currently trying out.  Must be called on the event dispatch thread.
    	 * @param array Array of integers of diagonal indices
    	 */
    	public static void printArrayCombination(int[] array) {
-   		String s ="";
+   		StringBuilder s = new StringBuilder();
    		for (int i = 0; i < array.length; i++) {
-   			s += array[i] + " ";
+   			s.append(array[i]).append(' ');
    		}
-   		combination_display.setText(s+"\n");
+   		combination_display.setText(s.append('\n').toString());
    	}
    	
    	/**
@@ -176,49 +179,50 @@ public class A4applet extends JApplet
    	 * run in a separate thread, which gives the user the ability to cancel the process.
    	 * @author Alex Chantavy
    	 */
-   	class Task extends SwingWorker<Void, Void> {
+   	class Task extends SwingWorker<Void, Void> implements ProgressListener {
    		boolean successful = false;
    		
    		/**
    		 * Generates the optimal triangulation of the polygon in a separate thread.
-   		 * @see Polygon#optimalTriangulation(Vertex[], ArrayList)
+   		 * @see TriangulationSolver#solve()
    		 */
    		@Override
    		public Void doInBackground() {
    			setProgress(0);
-   			
-   			ArrayList<Chord> allDiagonals = Polygon.generateAllDiagonals(vertices, boundary);
-   			ArrayList<Chord> optimum = new ArrayList<Chord>();
-   			Collections.sort(allDiagonals); //Collections.sort uses an n*log(n) mergesort.
-   			
-   			int n = vertices.length;
-   			int start = n-3-1;
-   			int end = allDiagonals.size();
-   			int num_chords_to_try = end - start; // used for JProgressBar reporting
-   			
-   			for (int i = start; i<end; i++) {
-   				try {
-	   				double percent = (((double)i-(double)start) / (double)num_chords_to_try) * 100;
-	   				setProgress((int)percent);
-	   				if (Thread.interrupted()) {
-	   					throw new InterruptedException();
-	   				}
-	   				optimum = Polygon.generateTriangulation(i, n, allDiagonals);
-		   			if (optimum != null) {
-		   				setProgress(100);
-		   				successful = true;
-		   				i = allDiagonals.size() + 2; // 2 is arbitrary. We just want to break out of the loop early
-		   			}
-   				}
-   				catch (InterruptedException e) {
-   					setProgress(0);
-   					return null;
+   			TriangulationSolver solver = new TriangulationSolver(vertices, boundary);
+   			solver.setProgressListener(this, COMBINATION_INTERVAL);
+   			try {
+   				ArrayList<Chord> optimum = solver.solve();
+   				if (optimum != null) {
+   					successful = true;
    				}
+   				optimumSolution = optimum;
+   			}
+   			catch (InterruptedException e) {
+   				setProgress(0);
    			}
-   			optimumSolution = optimum;
             return null;
    		}
    		
+   		/**
+   		 * Moves the progress bar as the solver tries new maximum length chords.
+   		 */
+   		public void maxChordStarted(int max_chord, int percent) {
+   			setProgress(percent);
+   		}
+   		
+   		/**
+   		 * Shows a sampled combination in the combination display.
+   		 */
+   		public void combinationTried(int[] indices) {
+   			final int[] combination = indices.clone(); // the solver reuses the array
+   			SwingUtilities.invokeLater(new Runnable() {
+   				public void run() {
+   					printArrayCombination(combination);
+   				}
+   			});
+   		}
+   		
    		/**
    		 * Manages what happens when algorithm execution is cancelled or completed.   
    		 */
@@ -246,7 +250,7 @@ public class A4applet extends JApplet
 					         	"Optimum Set: \n" + Chord.chordListAsString(optimumSolution) + 
 					         	"-------------------------------\n" +
 					         	"Max chord: " + maxChord.toString() +
-					         	"Length: " + maxChord.length + " units\n");
+					         	"Length: " + maxChord.getLength() + " units\n");
 			}
    		}
    	}
@@ -277,10 +281,10 @@ public class A4applet extends JApplet
    				inputPolygon(url_text); // attempt to form a polygon from the given URL
    				if (taskStatus == DRAW_POLYGON) {
    	   				console.append("Attempting to draw polygon\n");
-   	   				vertices =  Polygon.getVertices();  //get vertices input from file
+   	   				vertices =  model.getVertices();  //get vertices input from file
    	   				//!! if all error checks are passed then the polygon is (re)painted.
    	   				repaint();
-   	   				console.append("Polygon successfully drawn.  It has " + Polygon.getVertices().length +" points.\n" +
+   	   				console.append("Polygon successfully drawn.  It has " + vertices.length +" points.\n" +
    	   						"You can zoom the polygon in and out with the \"Scale Factor\" slider.\n" +
    	   						"Click \"Run algorithm\" to triangulate this polygon.\n");
    	   				btn_inputPolygon.setEnabled(false);
@@ -301,7 +305,7 @@ public class A4applet extends JApplet
    					btn_runAlgorithm.setEnabled(false);
    					console.append("Attempting algorithm.  Please wait.\n");	
    					
-   					boundary = Polygon.getBoundary();
+   					boundary = model.getBoundary();
    				  	allDiags = Polygon.generateAllDiagonals(vertices, boundary);
    				  	
    				  	setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
@@ -392,7 +396,8 @@ public class A4applet extends JApplet
 	 */
 	private void inputPolygon(String url_text) throws IOException {
 		console.append("Attempting to fetch URL.  Please wait.\n");
-		errorcode = Polygon.input(url_text); //takes url as input
+		model = PolygonModel.parse(url_text); //takes url as input
+		errorcode = model.getCode();
 		switch(errorcode) {
 		case -1:
 			console.append("(err 1) Please enter a URL.\n"); //blank input
@@ -420,13 +425,13 @@ public class A4applet extends JApplet
 			return;  
 		case -7:
 			console.append("(err 7) The file you gave me specified " 
-					+ Polygon.getVertices().length + " vertices, " +
-					"but it only defined " + Polygon.getNumDefPts() + " of them. " +
+					+ model.getDeclaredSize() + " vertices, " +
+					"but it only defined " + model.getDefinedPoints() + " of them. " +
 					"\nPlease edit the file or choose a different one.\n");
 			return;
 		case -8:
 			console.append("(err 8) The file wants me to draw " 
-					+ Polygon.getVertices().length + " points, but I can only draw " 
+					+ model.getDeclaredSize() + " points, but I can only draw " 
 					+ Polygon.MAX_N + "!\n" +
 					":( Please pick a file with fewer points\n");
 			return;  
@@ -443,7 +448,7 @@ public class A4applet extends JApplet
 			return;
 		case -12:
 			console.append("(err 12) The text file you specified contains duplicate points.\n" +
-					"Point: " + Polygon.lastDefined.toString() +
+					"Point: " + model.getLastDefined().toString() +
 					"Please modify or choose another text file.\n");
 			return;
 		case -13:
@@ -452,7 +457,7 @@ public class A4applet extends JApplet
 			return;
 		case -14:
 			console.append("(err 14) The text file you specified contains a vertex out of our drawable range.\n" +
-					"The vertex you tried to add was " + Polygon.lastDefined.toString() + ".\n" +
+					"The vertex you tried to add was " + model.getLastDefined().toString() + ".\n" +
 		  				"The maximum x value is abs(" + Polygon.MAX_X + ") and the maximum y \n" +
 		  						"value is abs(" + Polygon.MAX_Y + ").\n");
 			return;
@@ -0,0 +1,473 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Triangulates many polygon files without the applet.  The files are taken from a directory,
+ * which is searched recursively for <code>*.txt</code> files, or from a manifest listing one 
+ * path or URL per line (blank lines and lines starting with <code>#</code> are skipped), or from
+ * a {@link PolygonArchive}.  The polygons of an archive are taken in order, or a random sample
+ * of <code>-sample</code> of them is taken.</p>
+ * 
+ * <p>Every file is read into its own {@link PolygonModel} and solved on a fixed pool of worker
+ * threads.  The queue in front of the pool is bounded: when it is full the thread walking the 
+ * input runs the next file itself, so a directory of any size is never held in memory at once.
+ * One CSV line is written per file as soon as it is done, with the columns
+ * <code>file,code,n,diagonals,max_length,parse_ms,solve_ms,error</code>.  The code is the 
+ * outcome code of {@link Polygon#input(String)}: the number of vertices, or one of the error 
+ * codes -1 to -14 listed in {@link A4applet}.  The error column names an exception or error 
+ * thrown while reading or solving the file, and is empty otherwise.  A file that could not be
+ * read because of one, such as running out of memory, gets code -4.  Polygons with more than
+ * <code>-maxOptimal</code> vertices are not given to the optimal solver, whose tables take
+ * 12 bytes for every pair of vertices and whose time grows with the cube of their number; 
+ * they are reported with an error that says so.</p>
+ * 
+ * <p>At the end a summary of the number of files per code, the throughput and the percentiles
+ * of the time per file is printed to standard error.  The exit status is 1 if any file could 
+ * not be read or solved.</p>
+ * 
+ * <pre>
+ * java -cp out alexchantavy.BatchRunner -dir polygons -threads 8 -out results.csv
+ * java -cp out alexchantavy.BatchRunner -manifest nightly.txt -solver monotone
+ * java -cp out alexchantavy.BatchRunner -archive shapes.pga -sample 1000 -seed 7
+ * </pre>
+ * 
+ * <p>Options: <code>-dir</code>, <code>-manifest</code> or <code>-archive</code>, <code>-sample</code> 
+ * and <code>-seed</code> (for an archive), <code>-threads</code> (default: one 
+ * per core), <code>-queue</code> (files waiting for a worker, default four per thread), 
+ * <code>-solver</code> (<code>optimal</code> for {@link IntervalTriangulator}, 
+ * <code>monotone</code> for {@link MonotoneTriangulator}, or <code>none</code> to only read
+ * the files), <code>-maxOptimal</code> (default 2000), <code>-limits</code> (<code>true</code> to 
+ * apply the limits of the applet to text files) and <code>-out</code> (default: standard output).</p>
+ * 
+ * <p>The limits of the applet are off by default, so the codes -8 (too many vertices) and -14
+ * (a vertex out of bounds) are never reported unless <code>-limits true</code> is given.  They 
+ * exist because the applet draws the polygon on a small grid, and batches are mostly run on 
+ * polygons that were never meant to be drawn.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class BatchRunner {
+	
+	/**
+	 * The outcome of one file.
+	 */
+	static final class Result {
+		final String source;
+		final int code;
+		final int size;          // declared number of vertices
+		final int diagonals;     // -1 if not solved
+		final double maxLength;  // length of the longest diagonal, 0 for none
+		final long parseNanos;
+		final long solveNanos;
+		final String error;      // exception thrown by the solver, null if none
+		
+		Result(String source, int code, int size, int diagonals, double maxLength, 
+				long parseNanos, long solveNanos, String error) {
+			this.source = source;
+			this.code = code;
+			this.size = size;
+			this.diagonals = diagonals;
+			this.maxLength = maxLength;
+			this.parseNanos = parseNanos;
+			this.solveNanos = solveNanos;
+			this.error = error;
+		}
+		
+		/**
+		 * @return Whether the file was read and solved
+		 */
+		boolean succeeded() {
+			return code >= 0 && error == null;
+		}
+	}
+	
+	private File directory = null;
+	private File manifest = null;
+	private File archive = null;
+	private int sample = -1; // every polygon of the archive unless given
+	private long seed = 1;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int queue = -1; // four per thread unless given
+	private String solver = "optimal";
+	private int maxOptimal = 2000;
+	private boolean limits = false;
+	private File out = null;
+	
+	private PrintWriter writer;
+	private final TreeMap<Integer, Integer> codes = new TreeMap<Integer, Integer>();
+	private long[] latencies = new long[1024];
+	private int files = 0;
+	private int failures = 0;
+	private long vertices = 0;
+	
+	/**
+	 * Runs the batch.
+	 * @param args The options described above
+	 * @throws IOException If the input cannot be listed or the output cannot be written
+	 * @throws InterruptedException If interrupted while waiting for the workers
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		BatchRunner runner = new BatchRunner();
+		runner.parseArguments(args);
+		int failures = runner.run();
+		if (failures > 0) {
+			System.exit(1);
+		}
+	}
+	
+	private void parseArguments(String[] args) {
+		for (int i = 0; i < args.length; i += 2) {
+			if (i + 1 == args.length) {
+				throw new IllegalArgumentException("missing value for " + args[i]);
+			}
+			String value = args[i + 1];
+			if (args[i].equals("-dir")) directory = new File(value);
+			else if (args[i].equals("-manifest")) manifest = new File(value);
+			else if (args[i].equals("-archive")) archive = new File(value);
+			else if (args[i].equals("-sample")) sample = Integer.parseInt(value);
+			else if (args[i].equals("-seed")) seed = Long.parseLong(value);
+			else if (args[i].equals("-threads")) threads = Integer.parseInt(value);
+			else if (args[i].equals("-queue")) queue = Integer.parseInt(value);
+			else if (args[i].equals("-solver")) solver = value.toLowerCase();
+			else if (args[i].equals("-maxOptimal")) maxOptimal = Integer.parseInt(value);
+			else if (args[i].equals("-limits")) limits = Boolean.parseBoolean(value);
+			else if (args[i].equals("-out")) out = new File(value);
+			else throw new IllegalArgumentException("unknown option " + args[i]);
+		}
+		if ((directory != null ? 1 : 0) + (manifest != null ? 1 : 0) + (archive != null ? 1 : 0) != 1) {
+			throw new IllegalArgumentException("give one of -dir, -manifest and -archive");
+		}
+		if (!solver.equals("optimal") && !solver.equals("monotone") && !solver.equals("none")) {
+			throw new IllegalArgumentException("unknown solver " + solver);
+		}
+		if (threads < 1) {
+			throw new IllegalArgumentException("need at least one thread");
+		}
+		if (queue < 0) {
+			queue = 4 * threads;
+		}
+	}
+	
+	/**
+	 * Reads and solves every file of the input on the worker pool, then prints the summary.
+	 * @return The number of files that could not be read or solved
+	 */
+	private int run() throws IOException, InterruptedException {
+		writer = out != null ? new PrintWriter(new FileWriter(out)) 
+				: new PrintWriter(new OutputStreamWriter(System.out));
+		writer.println("file,code,n,diagonals,max_length,parse_ms,solve_ms,error");
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(Math.max(1, queue)), new ThreadPoolExecutor.CallerRunsPolicy());
+		long start = System.nanoTime();
+		try {
+			if (directory != null) {
+				submitDirectory(pool, directory);
+			}
+			else if (manifest != null) {
+				submitManifest(pool, manifest);
+			}
+			else {
+				submitArchive(pool, new PolygonArchive(archive));
+			}
+		}
+		finally {
+			pool.shutdown();
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			writer.close();
+		}
+		printSummary(System.nanoTime() - start);
+		return failures;
+	}
+	
+	/**
+	 * Submits the <code>*.txt</code> files of a directory and its subdirectories, in name order.
+	 */
+	private void submitDirectory(ThreadPoolExecutor pool, File directory) throws IOException {
+		File[] entries = directory.listFiles();
+		if (entries == null) {
+			throw new IOException("cannot list " + directory);
+		}
+		Arrays.sort(entries);
+		for (File entry : entries) {
+			if (entry.isDirectory()) {
+				submitDirectory(pool, entry);
+			}
+			else if (entry.getName().endsWith(".txt")) {
+				submit(pool, entry.toURI().toString(), entry.getPath());
+			}
+		}
+	}
+	
+	/**
+	 * Submits the files listed in a manifest.
+	 */
+	private void submitManifest(ThreadPoolExecutor pool, File manifest) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(manifest));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#")) {
+					continue;
+				}
+				submit(pool, address(line), line);
+			}
+		}
+		finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Submits the polygons of an archive in order, or a random sample of them without repeats.
+	 */
+	private void submitArchive(ThreadPoolExecutor pool, final PolygonArchive archive) {
+		int size = archive.size();
+		int[] indices = null;
+		if (sample >= 0 && sample < size) {
+			indices = new int[size];
+			for (int i = 0; i < size; i++) {
+				indices[i] = i;
+			}
+			Random random = new Random(seed);
+			for (int k = 0; k < sample; k++) { // the first k of a random permutation
+				int j = k + random.nextInt(size - k);
+				int swap = indices[k];
+				indices[k] = indices[j];
+				indices[j] = swap;
+			}
+			size = sample;
+		}
+		for (int k = 0; k < size; k++) {
+			final int index = indices == null ? k : indices[k];
+			pool.execute(new Runnable() {
+				public void run() {
+					record(process(archive, index));
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Returns the URL of a manifest entry: an entry that starts with a URL scheme is used as it is,
+	 * anything else is a file path.
+	 * @param entry A line of a manifest
+	 * @return The URL
+	 */
+	static String address(String entry) {
+		return entry.matches("[a-zA-Z][a-zA-Z0-9+.-]+:.*") ? entry : new File(entry).toURI().toString();
+	}
+	
+	private void submit(ThreadPoolExecutor pool, final String address, final String source) {
+		pool.execute(new Runnable() {
+			public void run() {
+				record(process(address, source));
+			}
+		});
+	}
+	
+	/**
+	 * Reads and solves one file.
+	 * @param address The URL of the file
+	 * @param source The name of the file in the output
+	 * @return The outcome
+	 */
+	Result process(String address, String source) {
+		long start = System.nanoTime();
+		PolygonModel model;
+		try {
+			model = PolygonModel.parse(address, limits);
+		}
+		catch (Throwable e) {
+			return unreadable(source, e, System.nanoTime() - start);
+		}
+		return solve(model, source, System.nanoTime() - start);
+	}
+	
+	/**
+	 * Checks and solves one polygon of an archive.
+	 * @param archive The archive
+	 * @param index The index of the polygon
+	 * @return The outcome, named <code>file#index</code>
+	 */
+	Result process(PolygonArchive archive, int index) {
+		long start = System.nanoTime();
+		String source = archive.getFile().getPath() + "#" + index;
+		PolygonModel model;
+		try {
+			model = PolygonModel.of(archive.get(index));
+		}
+		catch (Throwable e) {
+			return unreadable(source, e, System.nanoTime() - start);
+		}
+		return solve(model, source, System.nanoTime() - start);
+	}
+	
+	/**
+	 * Reports a file that could not be read because of an exception or error, such as running
+	 * out of memory, as error -4.  Anything thrown is reported rather than let out of the 
+	 * worker, where it would be lost together with the file's line.
+	 */
+	private static Result unreadable(String source, Throwable e, long parseNanos) {
+		return new Result(source, -4, 0, -1, 0, parseNanos, 0, e.toString());
+	}
+	
+	/**
+	 * Solves a polygon that has been read.
+	 * @param model The polygon
+	 * @param source The name of the polygon in the output
+	 * @param parseNanos The time taken to read it
+	 * @return The outcome
+	 */
+	private Result solve(PolygonModel model, String source, long parseNanos) {
+		if (!model.isValid() || solver.equals("none")) {
+			return new Result(source, model.getCode(), model.getDeclaredSize(), -1, 0, parseNanos, 0, null);
+		}
+		long parsed = System.nanoTime();
+		int diagonals = -1;
+		double maxLength = 0;
+		String error = null;
+		try {
+			if (solver.equals("optimal") && model.getDeclaredSize() > maxOptimal) {
+				error = "too large for the optimal solver, n > " + maxOptimal;
+			}
+			else if (solver.equals("optimal")) {
+				ArrayList<Chord> triangulation = model.optimalTriangulation();
+				if (triangulation == null) {
+					error = "no triangulation";
+				}
+				else {
+					diagonals = triangulation.size();
+					if (diagonals > 0) {
+						maxLength = triangulation.get(diagonals - 1).getLength();
+					}
+				}
+			}
+			else {
+				PackedPolygon polygon = model.getPolygon();
+				int[] pairs = MonotoneTriangulator.diagonals(polygon);
+				diagonals = pairs.length / 2;
+				double max = 0;
+				for (int k = 0; k < pairs.length; k += 2) {
+					double dx = polygon.x(pairs[k+1]) - polygon.x(pairs[k]);
+					double dy = polygon.y(pairs[k+1]) - polygon.y(pairs[k]);
+					max = Math.max(max, dx*dx + dy*dy);
+				}
+				maxLength = Math.sqrt(max);
+			}
+		}
+		catch (Throwable e) { // out of memory in the n by n tables, or a bug in a solver
+			error = e.toString();
+		}
+		return new Result(source, model.getCode(), model.getDeclaredSize(), diagonals, maxLength, 
+				parseNanos, System.nanoTime() - parsed, error);
+	}
+	
+	/**
+	 * Writes the line of a finished file and adds it to the summary.  Called by the workers.
+	 */
+	private synchronized void record(Result result) {
+		writer.println(csv(result.source) + "," + result.code + "," + result.size + "," + result.diagonals + "," 
+				+ result.maxLength + "," + millis(result.parseNanos) + "," + millis(result.solveNanos) + ","
+				+ (result.error == null ? "" : csv(result.error)));
+		Integer count = codes.get(result.code);
+		codes.put(result.code, count == null ? 1 : count + 1);
+		if (files == latencies.length) {
+			latencies = Arrays.copyOf(latencies, 2 * files);
+		}
+		latencies[files++] = result.parseNanos + result.solveNanos;
+		if (!result.succeeded()) {
+			failures++;
+		}
+		else {
+			vertices += result.size;
+		}
+	}
+	
+	/**
+	 * Prints the number of files per outcome code, the throughput and the time per file.
+	 * @param elapsed The wall clock time of the whole batch in nanoseconds
+	 */
+	private synchronized void printSummary(long elapsed) {
+		long[] sorted = Arrays.copyOf(latencies, files);
+		Arrays.sort(sorted);
+		long total = 0;
+		for (long latency : sorted) {
+			total += latency;
+		}
+		double seconds = elapsed / 1e9;
+		System.err.println(files + " file(s), " + (files - failures) + " solved, " + failures + " failed, " 
+				+ threads + " thread(s), " + millis(elapsed) + " ms");
+		for (Integer code : codes.keySet()) {
+			System.err.println("  code " + code + (code >= 0 ? " (ok)" : "") + ": " + codes.get(code));
+		}
+		if (files > 0) {
+			System.err.println(String.format(Locale.US, "throughput: %.1f files/s, %.1f vertices/s", 
+					files / seconds, vertices / seconds));
+			System.err.println("latency ms: mean " + millis(total / files) + ", p50 " + millis(percentile(sorted, 50))
+					+ ", p90 " + millis(percentile(sorted, 90)) + ", p99 " + millis(percentile(sorted, 99)) 
+					+ ", max " + millis(sorted[files - 1]));
+		}
+	}
+	
+	/**
+	 * @return The nearest rank percentile of the sorted values
+	 */
+	private static long percentile(long[] sorted, int p) {
+		int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+		return sorted[Math.max(0, rank - 1)];
+	}
+	
+	private static String millis(long nanos) {
+		return String.format(Locale.US, "%.3f", nanos / 1e6);
+	}
+	
+	/**
+	 * Quotes a CSV field if it contains a comma or a quote.
+	 */
+	private static String csv(String field) {
+		if (field.indexOf(',') < 0 && field.indexOf('"') < 0) {
+			return field;
+		}
+		return "\"" + field.replace("\"", "\"\"") + "\"";
+	}
+}
@@ -0,0 +1,196 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * <p>Backtracking search for the optimal triangulation that builds combinations one chord at a
+ * time instead of generating every combination and testing it afterwards.</p>
+ * 
+ * <p>The search relies on one fact: a maximal set of noncrossing diagonals is a triangulation.
+ * So if S is a noncrossing set of diagonals and T is any triangulation drawn from the diagonals
+ * that do not cross S, then T contains S.  That turns "can S still be completed" into "can the
+ * polygon be triangulated with the diagonals that do not cross S", which 
+ * {@link IntervalTriangulator#triangulate(DiagonalMatrix)} answers in O(n<sup>3</sup>).</p>
+ * 
+ * <p>The search runs in two steps.
+ * <ol>
+ * <li>Find the smallest index i such that the diagonals A[0..i] contain a triangulation.  Every 
+ * such triangulation uses A[i], so A[i] is the maximum chord the exhaustive search ends up with.  
+ * Containing a triangulation is monotone in i, so this is a binary search.</li>
+ * <li>Choose the other chords from A[0..i-1] in increasing order, as 
+ * {@link CombinationGenerator} would.  A candidate is pruned as soon as it crosses a chosen 
+ * chord, when too few noncrossing candidates remain to reach n-3 chords, or when the chosen 
+ * chords can no longer be completed to a triangulation.  The first candidate that survives is 
+ * the one the exhaustive search would have found first.</li>
+ * </ol>
+ * For the same polygon this returns exactly the chords of 
+ * {@link Polygon#optimalTriangulation(Vertex[], ArrayList)}.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class BranchAndBound {
+	
+	/**
+	 * Generates the optimal triangulation of the polygon.
+	 * @param vertices Array of vertices of the polygon
+	 * @param boundary The set of line segments that constitute the boundary of the polygon
+	 * @return The optimal triangulation of the polygon
+	 */
+	public static ArrayList<Chord> optimalTriangulation(Vertex[] vertices, ArrayList<Chord> boundary) {
+		PackedPolygon polygon = new PackedPolygon(vertices);
+		ArrayList<Chord> allDiagonals = new DiagonalMatrix(polygon).toSortedChordList(polygon, vertices);
+		return search(vertices.length, allDiagonals, new CrossingMatrix(polygon, allDiagonals));
+	}
+	
+	/**
+	 * Searches the sorted diagonals for the optimal triangulation.
+	 * @precondition allDiagonals is SORTED, and is an ArrayList of all the diagonals of a given polygon 
+	 * @param n The number of vertices of the polygon
+	 * @param allDiagonals Sorted ArrayList containing all diagonals of the polygon.
+	 * @param crossings The crossing table of <code>allDiagonals</code>
+	 * @return The optimal triangulation of the polygon, null if there is none
+	 */
+	public static ArrayList<Chord> search(int n, ArrayList<Chord> allDiagonals, CrossingMatrix crossings) {
+		if (n <= 3) {
+			return new ArrayList<Chord>();
+		}
+		
+		// step 1: the smallest prefix A[0..max_chord] that contains a triangulation
+		int low = n-3-1;
+		int high = allDiagonals.size() - 1;
+		int max_chord = -1;
+		long[] prefix = crossings.newSet();
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			Arrays.fill(prefix, 0);
+			for (int k = 0; k <= mid; k++) {
+				CrossingMatrix.add(prefix, k);
+			}
+			if (completable(n, allDiagonals, prefix)) {
+				max_chord = mid;
+				high = mid - 1;
+			}
+			else {
+				low = mid + 1;
+			}
+		}
+		if (max_chord < 0) {
+			return null;
+		}
+		
+		// step 2: choose the remaining n-4 chords in increasing index order
+		int[] chosen = new int[n-4];
+		long[] chosenSet = crossings.newSet();
+		long[] blocked = crossings.newSet();   // chords crossing a chosen chord
+		CrossingMatrix.add(chosenSet, max_chord);
+		crossings.addCrossings(blocked, max_chord);
+		if (!choose(0, 0, max_chord, chosen, chosenSet, blocked, n, allDiagonals, crossings)) {
+			return null; // cannot happen: step 1 proved a completion exists
+		}
+		ArrayList<Chord> triangulation = new ArrayList<Chord>();
+		for (int index : chosen) {
+			triangulation.add(allDiagonals.get(index));
+		}
+		triangulation.add(allDiagonals.get(max_chord));
+		return triangulation;
+	}
+	
+	/**
+	 * Chooses chosen[depth], chosen[depth+1], ... from the indices [next, max_chord), 
+	 * backtracking when a branch is pruned.
+	 * @return true if the chords were completed to a triangulation
+	 */
+	private static boolean choose(int depth, int next, int max_chord, int[] chosen, long[] chosenSet, 
+			long[] blocked, int n, ArrayList<Chord> allDiagonals, CrossingMatrix crossings) {
+		if (depth == chosen.length) {
+			return true;
+		}
+		int needed = chosen.length - depth;
+		for (int j = next; j <= max_chord - needed; j++) {
+			if (CrossingMatrix.contains(blocked, j)) {
+				continue; // crosses a chosen chord
+			}
+			if (available(blocked, j, max_chord) < needed) {
+				return false; // too few noncrossing chords left, for this j and every later one
+			}
+			long[] nextBlocked = blocked.clone();
+			crossings.addCrossings(nextBlocked, j);
+			CrossingMatrix.add(chosenSet, j);
+			if (available(nextBlocked, j + 1, max_chord) >= needed - 1 &&
+					completable(n, allDiagonals, usable(chosenSet, nextBlocked, j + 1, max_chord))) {
+				chosen[depth] = j;
+				if (choose(depth + 1, j + 1, max_chord, chosen, chosenSet, nextBlocked, n, allDiagonals, crossings)) {
+					return true;
+				}
+			}
+			chosenSet[j >>> 6] &= ~(1L << j);
+		}
+		return false;
+	}
+	
+	/**
+	 * Counts the indices in [from, to) that are not blocked.
+	 */
+	private static int available(long[] blocked, int from, int to) {
+		int count = 0;
+		for (int k = from; k < to; k++) {
+			if (!CrossingMatrix.contains(blocked, k)) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns the set of diagonals a completion may use: the chosen chords and the unblocked
+	 * indices in [from, to).
+	 */
+	private static long[] usable(long[] chosenSet, long[] blocked, int from, int to) {
+		long[] set = chosenSet.clone();
+		for (int k = from; k < to; k++) {
+			if (!CrossingMatrix.contains(blocked, k)) {
+				CrossingMatrix.add(set, k);
+			}
+		}
+		return set;
+	}
+	
+	/**
+	 * Determines whether the polygon can be triangulated using only the diagonals in the set.
+	 */
+	private static boolean completable(int n, ArrayList<Chord> allDiagonals, long[] set) {
+		DiagonalMatrix allowed = new DiagonalMatrix(n);
+		for (int k = 0; k < allDiagonals.size(); k++) {
+			if (CrossingMatrix.contains(set, k)) {
+				Chord c = allDiagonals.get(k);
+				allowed.set(c.v1.getID(), c.v2.getID());
+			}
+		}
+		return IntervalTriangulator.triangulate(allowed) != null;
+	}
+}
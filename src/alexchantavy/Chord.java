@@ -32,12 +32,13 @@ import java.util.ArrayList;
  * intersection and diagonal validity.  Algorithm sources 
  * cited near appropriate subroutines.
  * <p>A Chord is a line segment containing two vertices in the 
- * x,y plane with a length.
+ * x,y plane with a length.  The length is only computed when it is asked for, since most 
+ * chords are compared by their squared lengths and never need the square root.</p>
  * @author Alex Chantavy
  */
 public class Chord implements Comparable<Chord> {
-	protected Vertex v1, v2;
-	protected double length = 0;
+	protected final Vertex v1, v2;
+	private volatile double length = -1; // not computed yet, volatile so that it is never seen half written
 	
 	/**
 	 * Creates a Chord from the given set of Vertices.  
@@ -57,7 +58,28 @@ public class Chord implements Comparable<Chord> {
 	public Chord (Vertex v1, Vertex v2) {
 		this.v1 = v1;
 		this.v2 = v2;
-		length = Math.sqrt(Math.pow(((double)v2.xaxis - (double)v1.xaxis), 2)  +  Math.pow(((double)v2.yaxis - (double)v1.yaxis), 2));
+	}
+	
+	/**
+	 * Returns the length of the chord, computing it the first time.
+	 * @return The distance between the two vertices
+	 */
+	public double getLength() {
+		if (length < 0) {
+			length = Math.sqrt(squaredLength());
+		}
+		return length;
+	}
+	
+	/**
+	 * Returns the square of the length of the chord, which orders chords the same way as their 
+	 * lengths without taking a square root.
+	 * @return The squared distance between the two vertices
+	 */
+	public double squaredLength() {
+		double dx = v2.xaxis - v1.xaxis;
+		double dy = v2.yaxis - v1.yaxis;
+		return dx*dx + dy*dy;
 	}
 	
 	/**
@@ -67,20 +89,74 @@ public class Chord implements Comparable<Chord> {
 	 * @return Whether this chord and the other chord refer to the same points
 	 */
 	public boolean equals(Chord other) {
-		return this.length == other.length &&   
-		((this.v1.equals(other.v1) && this.v2.equals(other.v2)) || (this.v2.equals(other.v1) && this.v1.equals(other.v2)));
+		return ((this.v1.equals(other.v1) && this.v2.equals(other.v2)) || (this.v2.equals(other.v1) && this.v1.equals(other.v2)));
 	}
 
 	/**
-	 * Compare Chords based on length.  This is used with Collections.sort
+	 * Same as {@link #equals(Chord)}, so that chords can be kept in hash based collections.
+	 * @param other The other object
+	 * @return Whether other is a chord between the same points
+	 */
+	public boolean equals(Object other) {
+		return (other instanceof Chord) && this.equals((Chord) other);
+	}
+	
+	/**
+	 * Returns a hash code computed from the end points, consistent with {@link #equals(Chord)}: 
+	 * a chord and its reverse hash the same.
+	 */
+	public int hashCode() {
+		return v1.hashCode() ^ v2.hashCode();
+	}
+	
+	/**
+	 * Returns the key of this chord, see {@link #key(int, int)}.  The ids of both vertices must
+	 * be their indices in the polygon.
+	 * @return The key of the pair of vertex ids
+	 */
+	public long key() {
+		return key(v1.getID(), v2.getID());
+	}
+	
+	/**
+	 * Packs the chord between vertices i and j into a single long, the smaller id in the high
+	 * 32 bits and the larger in the low 32 bits.  (i, j) and (j, i) have the same key, and keys
+	 * sort the same way as {@link DiagonalMatrix#toChordList(Vertex[])} lists its chords.
+	 * @param i The first vertex id, not negative
+	 * @param j The second vertex id, not negative
+	 * @return The key of the chord
+	 */
+	public static long key(int i, int j) {
+		return i < j ? ((long) i << 32) | j : ((long) j << 32) | i;
+	}
+	
+	/**
+	 * @param key A key made by {@link #key(int, int)}
+	 * @return The smaller vertex id of the chord
+	 */
+	public static int keyFirst(long key) {
+		return (int) (key >>> 32);
+	}
+	
+	/**
+	 * @param key A key made by {@link #key(int, int)}
+	 * @return The larger vertex id of the chord
+	 */
+	public static int keySecond(long key) {
+		return (int) key;
+	}
+	
+	/**
+	 * Compare Chords based on length, by their squared lengths.  This is used with Collections.sort
 	 * @param other The other chord
 	 * @return 0 if equal in length, 1 if equivalent in length, -1 if shorter than other
 	 */
 	public int compareTo(Chord other) {
-		if (this.length == other.length) {
+		double length = this.squaredLength(), otherLength = other.squaredLength();
+		if (length == otherLength) {
 			return 0;
 		}
-		else if (other.length > this.length) {
+		else if (otherLength > length) {
 			return -1;
 		}
 		else {
@@ -98,7 +174,8 @@ public class Chord implements Comparable<Chord> {
 	
 	/**
 	 * Determines if a given chord exists in a given list of chords.  
-	 * This is a static method for convenience.
+	 * This is a static method for convenience.  It scans the whole list; use a 
+	 * {@link ChordSet} when testing many chords against the same set.
 	 * @param list An ArrayList of chords
 	 * @param chord any chord
 	 * @return Whether the given chord is present in the list
@@ -0,0 +1,237 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * <p>A set of chords stored as their {@link Chord#key(int, int) keys} in an open addressing 
+ * hash table, with linear probing over a plain <code>long</code> array.  Adding, removing and 
+ * testing a chord take O(1) expected time and never box the key or create an entry object, 
+ * unlike {@link Chord#contains(ArrayList, Chord)} which scans a whole list.</p>
+ * 
+ * <p>The table is kept at most half full and doubles when it reaches that.  Removal shifts the 
+ * following entries back instead of leaving markers, so lookups stay short after many removals.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class ChordSet {
+	static final long EMPTY = -1L; // no key has both halves negative
+	
+	private long[] keys;
+	private int mask;
+	private int size = 0;
+	
+	/**
+	 * Creates an empty set.
+	 */
+	public ChordSet() {
+		this(8);
+	}
+	
+	/**
+	 * Creates an empty set that holds the given number of chords without growing.
+	 * @param expected The number of chords expected
+	 */
+	public ChordSet(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		mask = capacity - 1;
+	}
+	
+	/**
+	 * Creates the set of the given chords, dropping duplicates.  The ids of the vertices of each 
+	 * chord must be their indices in the polygon.
+	 * @param chords The chords to add
+	 */
+	public ChordSet(ArrayList<Chord> chords) {
+		this(chords.size());
+		for (Chord c : chords) {
+			add(c.key());
+		}
+	}
+	
+	/**
+	 * Spreads the bits of a key so that neighbouring chords land far apart in the table.
+	 */
+	static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+	
+	/**
+	 * Adds the chord with the given key.
+	 * @param key A key made by {@link Chord#key(int, int)}
+	 * @return true if the chord was not already in the set
+	 */
+	public boolean add(long key) {
+		int slot = hash(key) & mask;
+		while (keys[slot] != EMPTY) {
+			if (keys[slot] == key) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		if (++size * 2 > keys.length) {
+			grow();
+		}
+		return true;
+	}
+	
+	/**
+	 * Adds the chord between vertices i and j.
+	 * @return true if the chord was not already in the set
+	 */
+	public boolean add(int i, int j) {
+		return add(Chord.key(i, j));
+	}
+	
+	/**
+	 * Adds the given chord.
+	 * @return true if the chord was not already in the set
+	 */
+	public boolean add(Chord chord) {
+		return add(chord.key());
+	}
+	
+	/**
+	 * Determines whether the chord with the given key is in the set.
+	 * @param key A key made by {@link Chord#key(int, int)}
+	 * @return true if the chord is in the set
+	 */
+	public boolean contains(long key) {
+		int slot = hash(key) & mask;
+		long k;
+		while ((k = keys[slot]) != EMPTY) {
+			if (k == key) {
+				return true;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+	
+	/**
+	 * Determines whether the chord between vertices i and j is in the set.
+	 */
+	public boolean contains(int i, int j) {
+		return contains(Chord.key(i, j));
+	}
+	
+	/**
+	 * Determines whether the given chord is in the set.
+	 */
+	public boolean contains(Chord chord) {
+		return contains(chord.key());
+	}
+	
+	/**
+	 * Removes the chord with the given key.
+	 * @param key A key made by {@link Chord#key(int, int)}
+	 * @return true if the chord was in the set
+	 */
+	public boolean remove(long key) {
+		int slot = hash(key) & mask;
+		while (keys[slot] != key) {
+			if (keys[slot] == EMPTY) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = EMPTY;
+		size--;
+		// move back any later key of the same run that can no longer be reached past the gap
+		int gap = slot;
+		slot = (slot + 1) & mask;
+		long k;
+		while ((k = keys[slot]) != EMPTY) {
+			int home = hash(k) & mask;
+			if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+				keys[gap] = k;
+				keys[slot] = EMPTY;
+				gap = slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return true;
+	}
+	
+	/**
+	 * @return The number of chords in the set
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return true if the set has no chords
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * Removes every chord, keeping the table.
+	 */
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+	
+	/**
+	 * Returns the keys of the chords in ascending order.
+	 * @return A new array of keys
+	 */
+	public long[] toArray() {
+		long[] result = new long[size];
+		int k = 0;
+		for (long key : keys) {
+			if (key != EMPTY) {
+				result[k++] = key;
+			}
+		}
+		Arrays.sort(result);
+		return result;
+	}
+	
+	private void grow() {
+		long[] old = keys;
+		keys = new long[old.length * 2];
+		Arrays.fill(keys, EMPTY);
+		mask = keys.length - 1;
+		for (long key : old) {
+			if (key != EMPTY) {
+				int slot = hash(key) & mask;
+				while (keys[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = key;
+			}
+		}
+	}
+}
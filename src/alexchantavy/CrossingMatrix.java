@@ -0,0 +1,185 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.util.ArrayList;
+
+/**
+ * <p>Precomputed table of which candidate diagonals cross each other.</p>
+ * 
+ * <p>Row a of the table is a bit set holding bit b when {@link Chord#intersects(Chord, Chord)}
+ * is true for chords a and b.  The table is filled once, testing each unordered pair one time,
+ * so the search phase never has to call <code>Chord.intersects</code> again.  A partial 
+ * triangulation is kept as a bit set of the same width, and testing whether a chord fits into
+ * it is an AND of one row against that set, one <code>long</code> word at a time.</p>
+ * 
+ * <p>The table takes d<sup>2</sup>/8 bytes for d diagonals, see {@link #estimateBytes(int)}.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class CrossingMatrix {
+	private final int size;
+	private final int words; // number of longs per row
+	private final long[] rows;
+	
+	/**
+	 * Creates the crossing table for the given list of chords.  Indices in the table are the
+	 * indices of the chords in the list.
+	 * @param chords The candidate diagonals, usually sorted by length
+	 */
+	public CrossingMatrix(ArrayList<Chord> chords) {
+		this.size = chords.size();
+		this.words = (size + 63) >>> 6;
+		this.rows = new long[size * words];
+		for (int a = 0; a < size; a++) {
+			Chord c = chords.get(a);
+			for (int b = a + 1; b < size; b++) {
+				if (Chord.intersects(c, chords.get(b))) {
+					rows[a * words + (b >>> 6)] |= 1L << b;
+					rows[b * words + (a >>> 6)] |= 1L << a;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Creates the crossing table for the given list of chords between vertices of the polygon,
+	 * using the allocation free kernel of {@link PackedPolygon}.  The id of each vertex of a 
+	 * chord must be its index in the polygon.
+	 * @param polygon The polygon the chords belong to
+	 * @param chords The candidate diagonals, usually sorted by length
+	 */
+	public CrossingMatrix(PackedPolygon polygon, ArrayList<Chord> chords) {
+		this.size = chords.size();
+		this.words = (size + 63) >>> 6;
+		this.rows = new long[size * words];
+		int[] from = new int[size];
+		int[] to = new int[size];
+		for (int a = 0; a < size; a++) {
+			from[a] = chords.get(a).v1.getID();
+			to[a] = chords.get(a).v2.getID();
+		}
+		for (int a = 0; a < size; a++) {
+			for (int b = a + 1; b < size; b++) {
+				if (polygon.intersects(from[a], to[a], from[b], to[b])) {
+					rows[a * words + (b >>> 6)] |= 1L << b;
+					rows[b * words + (a >>> 6)] |= 1L << a;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Determines whether chords a and b cross.
+	 * @param a Index of the first chord
+	 * @param b Index of the second chord
+	 * @return true if the chords intersect
+	 */
+	public boolean crosses(int a, int b) {
+		return (rows[a * words + (b >>> 6)] & (1L << b)) != 0;
+	}
+	
+	/**
+	 * Determines whether chord a crosses any chord in the given set.
+	 * @param a Index of the chord to test
+	 * @param set A bit set created by {@link #newSet()}
+	 * @return true if chord a intersects a member of the set
+	 */
+	public boolean crossesAny(int a, long[] set) {
+		int offset = a * words;
+		for (int w = 0; w < words; w++) {
+			if ((rows[offset + w] & set[w]) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Creates an empty set of chords that can be tested against this table.
+	 * @return An empty bit set
+	 */
+	public long[] newSet() {
+		return new long[words];
+	}
+	
+	/**
+	 * Adds chord a to the given set.
+	 * @param set A bit set created by {@link #newSet()}
+	 * @param a Index of the chord to add
+	 */
+	public static void add(long[] set, int a) {
+		set[a >>> 6] |= 1L << a;
+	}
+	
+	/**
+	 * Adds every chord that crosses chord a to the given set.
+	 * @param set A bit set created by {@link #newSet()}
+	 * @param a Index of the chord whose crossings to add
+	 */
+	public void addCrossings(long[] set, int a) {
+		int offset = a * words;
+		for (int w = 0; w < words; w++) {
+			set[w] |= rows[offset + w];
+		}
+	}
+	
+	/**
+	 * Determines whether chord a is in the given set.
+	 * @param set A bit set created by {@link #newSet()}
+	 * @param a Index of the chord
+	 * @return true if the set contains chord a
+	 */
+	public static boolean contains(long[] set, int a) {
+		return (set[a >>> 6] & (1L << a)) != 0;
+	}
+	
+	/**
+	 * Returns the number of chords in the table.
+	 * @return The number of rows of the table
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns the approximate number of bytes this table occupies on the heap.
+	 * @return Memory used by the table, in bytes
+	 */
+	public long memoryBytes() {
+		return estimateBytes(size);
+	}
+	
+	/**
+	 * Estimates the heap cost of a crossing table over d diagonals before building it.  
+	 * For example 1,000 diagonals take about 125 kB and 100,000 diagonals about 1.25 GB.
+	 * @param d The number of diagonals
+	 * @return Approximate memory used by the table, in bytes
+	 */
+	public static long estimateBytes(int d) {
+		long words = (d + 63) >>> 6;
+		return 16 + 8 * words * d; // array header plus the packed rows
+	}
+}
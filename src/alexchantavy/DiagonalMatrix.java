@@ -0,0 +1,246 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.util.ArrayList;
+
+/**
+ * <p>An n by n bit matrix telling which pairs of vertices of a polygon form a diagonal.</p>
+ * 
+ * <p>Each row is packed into <code>long</code> words, so the matrix takes n<sup>2</sup>/8 bytes
+ * and answers "is (i, j) a diagonal" in O(1).  Simple polygons are filled by 
+ * {@link VisibilityGraph}; otherwise only the pairs i &lt; j are tested with 
+ * {@link PackedPolygon#isDiagonal(int, int)}.  The matrix is symmetric, so both
+ * (i, j) and (j, i) are set from the one test and no duplicate removal is needed.</p>
+ * 
+ * <p>A matrix may also be created empty and filled in by the search engines to describe
+ * the set of diagonals they are allowed to use.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class DiagonalMatrix {
+	private final int n;
+	private final int words; // number of longs per row
+	private final long[] bits;
+	private int count = 0;
+	
+	/**
+	 * Creates a matrix with no diagonals set.
+	 * @param n The number of vertices of the polygon
+	 */
+	public DiagonalMatrix(int n) {
+		this.n = n;
+		this.words = (n + 63) >>> 6;
+		this.bits = new long[n * words];
+	}
+	
+	/**
+	 * Creates the diagonal matrix of the polygon defined by the given vertices and boundary.
+	 * @param vertices The array of vertices of the polygon
+	 * @param boundary The line segments that constitute the boundary of the polygon.  It must be
+	 * the edges between consecutive vertices, which is how every polygon in this package is built.
+	 */
+	public DiagonalMatrix(Vertex[] vertices, ArrayList<Chord> boundary) {
+		this(new PackedPolygon(vertices));
+	}
+	
+	/**
+	 * Creates the diagonal matrix of the given polygon.  In a {@link PackedPolygon#isConvex() 
+	 * convex} polygon every chord is a diagonal unless it runs along one side, so no test is 
+	 * needed.  Other simple polygons in clockwise order, which is every polygon 
+	 * {@link Polygon#input(String)} accepts, are searched with {@link VisibilityGraph} in 
+	 * O(n<sup>2</sup>) time.  The rest test each pair of 
+	 * vertices: those with 256 edges or more look up the boundary near each chord in an 
+	 * {@link EdgeGrid}, those with at least a block of edges test the whole boundary with 
+	 * {@link EdgeBatch}, and smaller ones use {@link PackedPolygon#isDiagonal(int, int)}.  All 
+	 * give the same matrix.
+	 * @param polygon The polygon
+	 */
+	public DiagonalMatrix(PackedPolygon polygon) {
+		this(polygon.size());
+		if (polygon.isConvex()) {
+			setConvex(polygon);
+		}
+		else if (!VisibilityGraph.fill(polygon, this)) {
+			testPairs(polygon, n >= EdgeBatch.BLOCK, n >= EdgeGrid.MIN_SIZE);
+		}
+	}
+	
+	/**
+	 * Creates the diagonal matrix of the given polygon by testing each pair of vertices with the
+	 * chosen boundary test.
+	 * @param polygon The polygon
+	 * @param batch Whether to test the boundary in blocks with {@link EdgeBatch}
+	 */
+	public DiagonalMatrix(PackedPolygon polygon, boolean batch) {
+		this(polygon, batch, false);
+	}
+	
+	/**
+	 * Creates the diagonal matrix of the given polygon by testing each pair of vertices with the
+	 * chosen boundary test.
+	 * @param polygon The polygon
+	 * @param batch Whether to test the boundary in blocks with {@link EdgeBatch}
+	 * @param grid Whether to test only the edges near each chord with {@link EdgeGrid}, which
+	 * takes precedence over batch
+	 */
+	public DiagonalMatrix(PackedPolygon polygon, boolean batch, boolean grid) {
+		this(polygon.size());
+		testPairs(polygon, batch, grid);
+	}
+	
+	/**
+	 * Sets every chord of a convex polygon except those whose vertices lie on one side, with 
+	 * only straight angles between them one way around.
+	 */
+	private void setConvex(PackedPolygon polygon) {
+		int[] straight = new int[n + 1]; // straight[k] = number of straight angles before vertex k
+		for (int k = 0; k < n; k++) {
+			straight[k + 1] = straight[k] + (polygon.isStraight(k) ? 1 : 0);
+		}
+		for (int i = 0; i < n; i++) {
+			for (int j = i + 2; j < n; j++) {
+				if (i == 0 && j == n-1) {
+					continue; // boundary edge
+				}
+				boolean inside = straight[j] - straight[i + 1] == j - i - 1;
+				boolean around = straight[n] - straight[j + 1] + straight[i] == n - j - 1 + i;
+				if (!inside && !around) {
+					set(i, j);
+				}
+			}
+		}
+	}
+	
+	private void testPairs(PackedPolygon polygon, boolean batch, boolean grid) {
+		EdgeGrid cells = grid ? new EdgeGrid(polygon) : null;
+		EdgeBatch edges = batch && !grid ? new EdgeBatch(polygon) : null;
+		for (int i = 0; i < n; i++) {
+			for (int j = i + 2; j < n; j++) {
+				if (i == 0 && j == n-1) {
+					continue; // boundary edge
+				}
+				boolean diagonal = cells != null ? cells.isDiagonal(i, j) :
+					edges != null ? edges.isDiagonal(i, j) : polygon.isDiagonal(i, j);
+				if (diagonal) {
+					set(i, j);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Determines if the vertices i and j form a diagonal.
+	 * @param i The first vertex id
+	 * @param j The second vertex id
+	 * @return true if (i, j) is a diagonal
+	 */
+	public boolean isDiagonal(int i, int j) {
+		return (bits[i * words + (j >>> 6)] & (1L << j)) != 0;
+	}
+	
+	/**
+	 * Marks (i, j) and (j, i) as a diagonal.
+	 * @param i The first vertex id
+	 * @param j The second vertex id
+	 */
+	void set(int i, int j) {
+		if (!isDiagonal(i, j)) {
+			bits[i * words + (j >>> 6)] |= 1L << j;
+			bits[j * words + (i >>> 6)] |= 1L << i;
+			count++;
+		}
+	}
+	
+	/**
+	 * Returns the number of vertices of the polygon.
+	 * @return The number of rows and columns of the matrix
+	 */
+	public int size() {
+		return n;
+	}
+	
+	/**
+	 * Returns the number of diagonals, counting (i, j) and (j, i) once.
+	 * @return The number of diagonals
+	 */
+	public int count() {
+		return count;
+	}
+	
+	/**
+	 * Returns the diagonals as chord keys, see {@link Chord#key(int, int)}, in the same order as
+	 * {@link #toChordList(Vertex[])}.
+	 * @return An array of {@link #count()} chord keys
+	 */
+	public long[] toKeys() {
+		long[] keys = new long[count];
+		int c = 0;
+		for (int i = 0; i < n; i++) {
+			for (int w = (i + 1) >>> 6; w < words; w++) {
+				long word = bits[i * words + w];
+				if (w == (i + 1) >>> 6) {
+					word &= -1L << (i + 1); // only j > i
+				}
+				while (word != 0) {
+					keys[c++] = Chord.key(i, (w << 6) + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+		}
+		return keys;
+	}
+	
+	/**
+	 * Returns the diagonals as chords.  Chords are ordered by their first vertex id and then by 
+	 * their second, with the smaller id first, which is the same order 
+	 * {@link Polygon#generateAllDiagonals(Vertex[], ArrayList)} has always produced.
+	 * @param vertices The array of vertices of the polygon
+	 * @return An ArrayList containing all the diagonals
+	 */
+	public ArrayList<Chord> toChordList(Vertex[] vertices) {
+		return toChordList(toKeys(), vertices);
+	}
+	
+	/**
+	 * Returns the diagonals as chords sorted from shortest to longest with {@link LengthSort}, 
+	 * diagonals of equal length in the order of {@link #toChordList(Vertex[])}.  This is the list
+	 * the search engines work on.
+	 * @param polygon The polygon the matrix was made from
+	 * @param vertices The array of vertices of the polygon
+	 * @return An ArrayList containing all the diagonals, sorted by length
+	 */
+	public ArrayList<Chord> toSortedChordList(PackedPolygon polygon, Vertex[] vertices) {
+		return toChordList(LengthSort.sort(polygon, toKeys()), vertices);
+	}
+	
+	private static ArrayList<Chord> toChordList(long[] keys, Vertex[] vertices) {
+		ArrayList<Chord> chords = new ArrayList<Chord>(keys.length);
+		for (long key : keys) {
+			chords.add(new Chord(Chord.keyFirst(key), Chord.keySecond(key), vertices));
+		}
+		return chords;
+	}
+}
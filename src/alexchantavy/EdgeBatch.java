@@ -0,0 +1,211 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+
+/**
+ * <p>Tests a chord against the boundary of a {@link PackedPolygon} a block of edges at a time.
+ * Gives exactly the same answers as {@link PackedPolygon#diagonalie(int, int)}.</p>
+ * 
+ * <p>The edges are copied into four coordinate arrays (start x, start y, end x, end y), so 
+ * that for each block the four cross products of Cormen's intersection test, and their error 
+ * bounds from {@link Orientation}, are computed by a loop of plain arithmetic over contiguous 
+ * arrays with no branches or calls.  That loop is the part the JIT compiler can turn into 
+ * vector instructions.  A second, scalar pass then reads the results: where every sign is 
+ * certain the edge crosses the chord only if both pairs of signs differ, and for the rare 
+ * uncertain or collinear edge the exact {@link PackedPolygon#intersects(int, int, int, int)} 
+ * decides.</p>
+ * 
+ * <p>The first loop is a {@link Kernel}.  When the classes of the <code>vector</code> source 
+ * directory have been compiled and the JVM runs with 
+ * <code>--add-modules jdk.incubator.vector</code> (JDK 16 or higher), it is replaced by 
+ * <code>VectorKernel</code>, which computes several edges per instruction with the Vector API
+ * whatever the JIT compiler decides.  It does the same arithmetic in the same order, so the 
+ * answers are the same.  Otherwise, or if it cannot be loaded, the scalar loop is used.</p>
+ * 
+ * <p>An EdgeBatch keeps scratch arrays for one block, so it must not be shared between threads.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class EdgeBatch {
+	static final int BLOCK = 64; // edges per block
+	
+	/**
+	 * Computes the four directions of Cormen's test and their error bounds for part of a block.
+	 */
+	interface Kernel {
+		/**
+		 * Fills entries [from, to) of the result arrays of the batch for the chord from (ax, ay) 
+		 * to (bx, by) and the edges start+from to start+to-1.
+		 */
+		void directions(EdgeBatch batch, double ax, double ay, double bx, double by, int start, int from, int to);
+		
+		/**
+		 * @return The number of edges computed at once
+		 */
+		int lanes();
+	}
+	
+	/** The loop of plain arithmetic, left to the JIT compiler. */
+	static final Kernel SCALAR = new Kernel() {
+		public void directions(EdgeBatch batch, double ax, double ay, double bx, double by, int start, int from, int to) {
+			double[] x0 = batch.x0, y0 = batch.y0, x1 = batch.x1, y1 = batch.y1;
+			double abx = bx - ax, aby = by - ay;
+			double err = Orientation.ERROR_BOUND;
+			// the four directions of Cormen's test, as in PackedPolygon.intersects(a, b, e, f)
+			for (int k = from; k < to; k++) {
+				int e = start + k;
+				double ex = x1[e] - x0[e], ey = y1[e] - y0[e];
+				double l1 = (ax - x0[e]) * ey, r1 = ex * (ay - y0[e]);
+				double l2 = (bx - x0[e]) * ey, r2 = ex * (by - y0[e]);
+				double l3 = (x0[e] - ax) * aby, r3 = abx * (y0[e] - ay);
+				double l4 = (x1[e] - ax) * aby, r4 = abx * (y1[e] - ay);
+				batch.d1[k] = l1 - r1;
+				batch.d2[k] = l2 - r2;
+				batch.d3[k] = l3 - r3;
+				batch.d4[k] = l4 - r4;
+				batch.b1[k] = err * (Math.abs(l1) + Math.abs(r1));
+				batch.b2[k] = err * (Math.abs(l2) + Math.abs(r2));
+				batch.b3[k] = err * (Math.abs(l3) + Math.abs(r3));
+				batch.b4[k] = err * (Math.abs(l4) + Math.abs(r4));
+			}
+		}
+		
+		public int lanes() {
+			return 1;
+		}
+	};
+	
+	/** The Vector API kernel, or null if it is not available. */
+	static final Kernel VECTOR = vectorKernel();
+	
+	private final PackedPolygon polygon;
+	private final int n;
+	private final Kernel kernel;
+	final double[] x0, y0, x1, y1; // edge e runs from vertex e to vertex e+1
+	final double[] d1 = new double[BLOCK], d2 = new double[BLOCK];
+	final double[] d3 = new double[BLOCK], d4 = new double[BLOCK];
+	final double[] b1 = new double[BLOCK], b2 = new double[BLOCK];
+	final double[] b3 = new double[BLOCK], b4 = new double[BLOCK];
+	
+	/**
+	 * Looks up the Vector API kernel by reflection, so that this class compiles and runs without
+	 * it.
+	 * @return The kernel, or null
+	 */
+	private static Kernel vectorKernel() {
+		try {
+			return (Kernel) Class.forName("alexchantavy.VectorKernel").getDeclaredConstructor().newInstance();
+		}
+		catch (ReflectiveOperationException e) {
+			return null; // not compiled
+		}
+		catch (LinkageError e) {
+			return null; // compiled, but jdk.incubator.vector was not added to this JVM
+		}
+	}
+	
+	/**
+	 * Copies the boundary edges of the polygon.  The blocks are computed with the Vector API if
+	 * it is available.
+	 * @param polygon The polygon
+	 */
+	public EdgeBatch(PackedPolygon polygon) {
+		this(polygon, true);
+	}
+	
+	/**
+	 * Copies the boundary edges of the polygon.
+	 * @param polygon The polygon
+	 * @param vector Whether to use the Vector API if it is available, rather than the scalar loop
+	 */
+	EdgeBatch(PackedPolygon polygon, boolean vector) {
+		this.polygon = polygon;
+		this.n = polygon.size();
+		this.kernel = vector && VECTOR != null ? VECTOR : SCALAR;
+		x0 = new double[n];
+		y0 = new double[n];
+		x1 = new double[n];
+		y1 = new double[n];
+		for (int e = 0; e < n; e++) {
+			int f = e + 1 == n ? 0 : e + 1;
+			x0[e] = polygon.x(e);
+			y0[e] = polygon.y(e);
+			x1[e] = polygon.x(f);
+			y1[e] = polygon.y(f);
+		}
+	}
+	
+	/**
+	 * Same as {@link PackedPolygon#diagonalie(int, int)}: whether the chord from a to b crosses
+	 * no boundary edge that is not incident to a or b.
+	 * @param a The first vertex
+	 * @param b The second vertex
+	 * @return True if (a, b) is entirely inside or entirely outside of the polygon
+	 */
+	public boolean diagonalie(int a, int b) {
+		double ax = polygon.x(a), ay = polygon.y(a);
+		double bx = polygon.x(b), by = polygon.y(b);
+		for (int start = 0; start < n; start += BLOCK) {
+			int length = Math.min(BLOCK, n - start);
+			kernel.directions(this, ax, ay, bx, by, start, 0, length);
+			for (int k = 0; k < length; k++) {
+				int e = start + k;
+				int f = e + 1 == n ? 0 : e + 1;
+				if (e == a || e == b || f == a || f == b) {
+					continue; // edges incident to the chord are skipped
+				}
+				if (Math.abs(d1[k]) > b1[k] && Math.abs(d2[k]) > b2[k] &&
+						Math.abs(d3[k]) > b3[k] && Math.abs(d4[k]) > b4[k]) {
+					// no sign is zero, so only a proper crossing counts
+					if ((d1[k] > 0) != (d2[k] > 0) && (d3[k] > 0) != (d4[k] > 0)) {
+						return false;
+					}
+				}
+				else if (polygon.intersects(a, b, e, f)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Same as {@link PackedPolygon#isDiagonal(int, int)}, with the boundary tested in blocks.
+	 * @param a The first vertex
+	 * @param b The second vertex
+	 * @return True if (a, b) is a diagonal
+	 */
+	public boolean isDiagonal(int a, int b) {
+		return (polygon.inCone(a, b) || polygon.inCone(b, a)) && diagonalie(a, b);
+	}
+	
+	/**
+	 * @return The number of edges the kernel of this batch computes at once, 1 for the scalar loop
+	 */
+	int lanes() {
+		return kernel.lanes();
+	}
+}
@@ -0,0 +1,201 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.util.Arrays;
+
+/**
+ * <p>A uniform grid over the boundary edges of a {@link PackedPolygon}, so a chord is only 
+ * tested against the edges that pass near it instead of against all n of them.  Gives exactly 
+ * the same answers as {@link PackedPolygon#diagonalie(int, int)}.</p>
+ * 
+ * <p>The bounding box of the polygon is cut into about n square cells.  An edge is listed in 
+ * every cell it passes through, found row by row, and one cell to either side so that rounding
+ * in the cell arithmetic can never lose it.  A chord walks the rows it spans the same way and 
+ * collects the edges listed in its cells, each once, and the exact 
+ * {@link PackedPolygon#intersects(int, int, int, int)} decides.  Two segments that touch 
+ * share the cell of the point where they touch, so no crossing is missed.  The cells are 
+ * stored as one array of edge ids with an offset per cell.</p>
+ * 
+ * <p>For polygons whose edges are about the same size, a chord meets O(&radic;n) cells 
+ * holding O(1) edges each, so filling a {@link DiagonalMatrix} takes O(n<sup>2.5</sup>) 
+ * instead of O(n<sup>3</sup>).  An EdgeGrid keeps scratch state for its queries, so it must 
+ * not be shared between threads.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class EdgeGrid {
+	static final int MIN_SIZE = 256; // polygons this large fill a DiagonalMatrix faster with a grid
+	
+	private final PackedPolygon polygon;
+	private final int n;
+	private final double minX, minY, cellWidth, cellHeight;
+	private final int columns, rows;
+	private final int[] start; // edges of cell c are cellEdges[start[c] .. start[c+1]-1]
+	private final int[] cellEdges;
+	private final int[] stamp; // query number an edge was last tested in
+	private int query = 0;
+	private int firstColumn, lastColumn; // set by span
+	
+	/**
+	 * Lists the boundary edges of the polygon in the cells they pass through.
+	 * @param polygon The polygon
+	 */
+	public EdgeGrid(PackedPolygon polygon) {
+		this.polygon = polygon;
+		this.n = polygon.size();
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		double lowX = Double.POSITIVE_INFINITY, lowY = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			lowX = Math.min(lowX, polygon.x(i));
+			lowY = Math.min(lowY, polygon.y(i));
+			maxX = Math.max(maxX, polygon.x(i));
+			maxY = Math.max(maxY, polygon.y(i));
+		}
+		minX = lowX;
+		minY = lowY;
+		double width = maxX - minX, height = maxY - minY;
+		// about n cells, as square as the bounding box allows
+		double side = width > 0 && height > 0 ? Math.sqrt(width * height / Math.max(n, 1)) :
+			Math.max(width, height) / Math.max(n, 1);
+		columns = side > 0 ? (int) Math.min(Math.max(1, Math.ceil(width / side)), n) : 1;
+		rows = side > 0 ? (int) Math.min(Math.max(1, Math.ceil(height / side)), n) : 1;
+		cellWidth = width > 0 ? width / columns : 1;
+		cellHeight = height > 0 ? height / rows : 1;
+		stamp = new int[n];
+		
+		// count the edges of each cell, then fill them in
+		start = new int[columns * rows + 1];
+		for (int e = 0; e < n; e++) {
+			visit(e, e + 1 == n ? 0 : e + 1, e, false);
+		}
+		for (int c = 0; c < columns * rows; c++) {
+			start[c + 1] += start[c];
+		}
+		cellEdges = new int[start[columns * rows]];
+		for (int e = 0; e < n; e++) {
+			visit(e, e + 1 == n ? 0 : e + 1, e, true);
+		}
+		// filling moved every start to the end of its cell; move them back
+		System.arraycopy(start, 0, start, 1, columns * rows);
+		start[0] = 0;
+	}
+	
+	/**
+	 * Same as {@link PackedPolygon#diagonalie(int, int)}: whether the chord from a to b crosses
+	 * no boundary edge that is not incident to a or b.
+	 * @param a The first vertex
+	 * @param b The second vertex
+	 * @return True if (a, b) is entirely inside or entirely outside of the polygon
+	 */
+	public boolean diagonalie(int a, int b) {
+		if (++query == 0) { // wrapped around: forget every old stamp
+			Arrays.fill(stamp, 0);
+			query = 1;
+		}
+		double ay = polygon.y(a), by = polygon.y(b);
+		int firstRow = row(Math.min(ay, by)) - 1, lastRow = row(Math.max(ay, by)) + 1;
+		for (int r = Math.max(firstRow, 0); r <= Math.min(lastRow, rows - 1); r++) {
+			span(a, b, r);
+			for (int c = firstColumn; c <= lastColumn; c++) {
+				int cell = r * columns + c;
+				for (int k = start[cell]; k < start[cell + 1]; k++) {
+					int e = cellEdges[k];
+					if (stamp[e] == query) {
+						continue;
+					}
+					stamp[e] = query;
+					int f = e + 1 == n ? 0 : e + 1;
+					if (e != a && e != b && f != a && f != b && polygon.intersects(a, b, e, f)) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Same as {@link PackedPolygon#isDiagonal(int, int)}, with the boundary looked up in the grid.
+	 * @param a The first vertex
+	 * @param b The second vertex
+	 * @return True if (a, b) is a diagonal
+	 */
+	public boolean isDiagonal(int a, int b) {
+		return (polygon.inCone(a, b) || polygon.inCone(b, a)) && diagonalie(a, b);
+	}
+	
+	/**
+	 * Counts edge e, from vertex i to vertex j, in each of its cells, or lists it there.
+	 */
+	private void visit(int i, int j, int e, boolean fill) {
+		int firstRow = row(Math.min(polygon.y(i), polygon.y(j))) - 1;
+		int lastRow = row(Math.max(polygon.y(i), polygon.y(j))) + 1;
+		for (int r = Math.max(firstRow, 0); r <= Math.min(lastRow, rows - 1); r++) {
+			span(i, j, r);
+			for (int c = firstColumn; c <= lastColumn; c++) {
+				int cell = r * columns + c;
+				if (fill) {
+					cellEdges[start[cell]++] = e;
+				}
+				else {
+					start[cell + 1]++;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Finds the first and last column the segment from vertex i to vertex j passes through in 
+	 * row r, padded by one column on each side.
+	 */
+	private void span(int i, int j, int r) {
+		double x0 = polygon.x(i), y0 = polygon.y(i), x1 = polygon.x(j), y1 = polygon.y(j);
+		double low = Math.max(minY + r * cellHeight, Math.min(y0, y1));
+		double high = Math.min(minY + (r + 1) * cellHeight, Math.max(y0, y1));
+		double left, right;
+		if (y0 == y1 || low > high) {
+			left = Math.min(x0, x1);
+			right = Math.max(x0, x1);
+		}
+		else {
+			// where the segment enters and leaves the row
+			double xLow = x0 + (x1 - x0) * ((low - y0) / (y1 - y0));
+			double xHigh = x0 + (x1 - x0) * ((high - y0) / (y1 - y0));
+			left = Math.max(Math.min(xLow, xHigh), Math.min(x0, x1));
+			right = Math.min(Math.max(xLow, xHigh), Math.max(x0, x1));
+		}
+		firstColumn = Math.max(column(left) - 1, 0);
+		lastColumn = Math.min(column(right) + 1, columns - 1);
+	}
+	
+	private int row(double y) {
+		return (int) Math.min(Math.max((y - minY) / cellHeight, -1), rows);
+	}
+	
+	private int column(double x) {
+		return (int) Math.min(Math.max((x - minX) / cellWidth, -1), columns);
+	}
+}
@@ -0,0 +1,147 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * <p>Computes an optimal triangulation of a polygon with dynamic programming over
+ * vertex intervals instead of enumerating combinations of diagonals.</p>
+ * 
+ * <p>Every triangulation of the sub-polygon <i>v<sub>i</sub>, v<sub>i+1</sub>, ..., v<sub>j</sub></i>
+ * contains exactly one triangle (i, k, j) on the side (i, j).  That triangle splits the 
+ * sub-polygon into the intervals [i, k] and [k, j], which are triangulated independently.
+ * So the smallest possible maximum diagonal of [i, j] is</p>
+ * 
+ * <pre>
+ *   best[i][j] = min over k of max(best[i][k], best[k][j], w(i, k), w(k, j))
+ * </pre>
+ * 
+ * <p>where w is the length of a diagonal and 0 for a boundary edge.  The triangle (i, k, j)
+ * may only be used if (i, k) and (k, j) are boundary edges or diagonals as determined by
+ * {@link Chord#diagonal(Chord, Vertex[], ArrayList)}.  There are O(n<sup>2</sup>) intervals
+ * and O(n) choices of k for each, so the whole polygon is solved in O(n<sup>3</sup>) time
+ * after the diagonals have been found.</p>
+ * 
+ * <p>The recurrence itself is run by {@link ObjectiveTriangulator}, which also minimizes other 
+ * costs; this class keeps the min-max entry point and the feasibility test used by 
+ * {@link ThresholdSearch}.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class IntervalTriangulator {
+	
+	/**
+	 * Generates a triangulation of the polygon whose maximum length diagonal is as small as possible.
+	 * Gives the same maximum length as {@link Polygon#optimalTriangulation(Vertex[], ArrayList)}, but
+	 * runs in polynomial time.  When several triangulations share the optimal maximum, any one of 
+	 * them may be returned.
+	 * @param vertices Array of vertices of the polygon
+	 * @param boundary The set of line segments that constitute the boundary of the polygon
+	 * @return The n-3 diagonals of the triangulation, sorted from least to greatest length so that the 
+	 * maximum length chord is the last element.  Empty if the polygon is a triangle, null if the 
+	 * polygon cannot be triangulated with its diagonals.
+	 */
+	public static ArrayList<Chord> optimalTriangulation(Vertex[] vertices, ArrayList<Chord> boundary) {
+		return new ObjectiveTriangulator(vertices).triangulate(ObjectiveTriangulator.Objective.MIN_MAX);
+	}
+	
+	/**
+	 * Determines whether the polygon can be triangulated using only the allowed diagonals.
+	 * This is the same recurrence as {@link #optimalTriangulation(Vertex[], ArrayList)} with 
+	 * the max replaced by "and": an interval [i, j] can be triangulated if some apex k has both
+	 * [i, k] and [k, j] triangulable.  Runs in O(n<sup>3</sup>) time.
+	 * @param allowed The diagonals that may be used
+	 * @return The table of split points of a triangulation, or null if there is none
+	 */
+	static int[][] triangulate(DiagonalMatrix allowed) {
+		int n = allowed.size();
+		int[][] split = new int[n][n];
+		boolean[][] possible = new boolean[n][n];
+		for (int i = 0; i + 1 < n; i++) {
+			possible[i][i+1] = true;
+		}
+		for (int gap = 2; gap < n; gap++) {
+			for (int i = 0; i + gap < n; i++) {
+				int j = i + gap;
+				if (!allowed.isDiagonal(i, j) && !(i == 0 && j == n-1)) {
+					continue;
+				}
+				for (int k = i + 1; k < j; k++) {
+					if (possible[i][k] && possible[k][j]) {
+						possible[i][j] = true;
+						split[i][j] = k;
+						break;
+					}
+				}
+			}
+		}
+		if (n > 3 && !possible[0][n-1]) {
+			return null;
+		}
+		return split;
+	}
+	
+	/**
+	 * Builds the list of diagonals described by a table of split points.
+	 * @param split split[i][j] is the apex k of the triangle (i, k, j)
+	 * @param diagonal The diagonals of the polygon
+	 * @param vertices Array of vertices of the polygon
+	 * @return The n-3 diagonals of the triangulation, sorted from least to greatest length
+	 */
+	static ArrayList<Chord> collectTriangulation(int[][] split, DiagonalMatrix diagonal, Vertex[] vertices) {
+		ArrayList<Chord> triangulation = new ArrayList<Chord>();
+		collectDiagonals(0, vertices.length-1, split, diagonal, vertices, triangulation);
+		Collections.sort(triangulation);
+		return triangulation;
+	}
+	
+	/**
+	 * Walks the table of split points and adds the diagonals of the triangulation of [i, j]
+	 * to the given list.
+	 * @param i First vertex of the interval
+	 * @param j Last vertex of the interval
+	 * @param split split[i][j] is the apex k of the triangle (i, k, j)
+	 * @param diagonal The diagonals of the polygon
+	 * @param vertices Array of vertices of the polygon
+	 * @param triangulation The list the diagonals are added to
+	 */
+	private static void collectDiagonals(int i, int j, int[][] split, DiagonalMatrix diagonal, 
+			Vertex[] vertices, ArrayList<Chord> triangulation) {
+		if (j - i < 2) {
+			return;
+		}
+		int k = split[i][j];
+		if (diagonal.isDiagonal(i, k)) {
+			triangulation.add(new Chord(i, k, vertices));
+		}
+		if (diagonal.isDiagonal(k, j)) {
+			triangulation.add(new Chord(k, j, vertices));
+		}
+		collectDiagonals(i, k, split, diagonal, vertices, triangulation);
+		collectDiagonals(k, j, split, diagonal, vertices, triangulation);
+	}
+}
@@ -0,0 +1,114 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.util.Arrays;
+
+/**
+ * <p>Sorts chords from shortest to longest without creating or comparing {@link Chord} objects.
+ * Each chord is a key made by {@link Chord#key(int, int)}; its 
+ * {@link PackedPolygon#lengthKey(int, int) length key} goes into a primitive array next to the
+ * chord's position, and the pairs are sorted with a least significant digit radix sort, one 
+ * byte per pass.  Passes over a byte that is the same for every chord are skipped, so small 
+ * integer polygons need only two or three.</p>
+ * 
+ * <p>The sort is stable: chords of equal length keep the order they were given in, so sorting 
+ * the chords of {@link DiagonalMatrix#toKeys()} gives the same list as sorting 
+ * {@link DiagonalMatrix#toChordList(Vertex[])} with {@link PackedPolygon#lengthOrder()}.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class LengthSort {
+	private static final int RADIX = 256;
+	
+	private LengthSort() {
+	}
+	
+	/**
+	 * Sorts chords between vertices of the polygon from shortest to longest.
+	 * @param polygon The polygon
+	 * @param chords Chord keys, see {@link Chord#key(int, int)}.  Not changed.
+	 * @return The chord keys, sorted by length
+	 */
+	public static long[] sort(PackedPolygon polygon, long[] chords) {
+		int m = chords.length;
+		long[] lengths = new long[m];
+		int[] positions = new int[m];
+		for (int c = 0; c < m; c++) {
+			lengths[c] = polygon.lengthKey(Chord.keyFirst(chords[c]), Chord.keySecond(chords[c]));
+			positions[c] = c;
+		}
+		sort(lengths, positions);
+		long[] sorted = new long[m];
+		for (int c = 0; c < m; c++) {
+			sorted[c] = chords[positions[c]];
+		}
+		return sorted;
+	}
+	
+	/**
+	 * Sorts keys that are not negative into ascending order, and moves each value along with its
+	 * key.  Values of equal keys stay in the same order.
+	 * @param keys The keys
+	 * @param values The values, as many as there are keys
+	 */
+	static void sort(long[] keys, int[] values) {
+		int m = keys.length;
+		long[] fromKeys = keys, toKeys = new long[m];
+		int[] fromValues = values, toValues = new int[m];
+		int[] start = new int[RADIX + 1];
+		for (int shift = 0; shift < 64 && m > 0; shift += 8) {
+			Arrays.fill(start, 0);
+			for (int c = 0; c < m; c++) {
+				start[digit(fromKeys[c], shift) + 1]++;
+			}
+			if (start[digit(fromKeys[0], shift) + 1] == m) {
+				continue; // every key has the same digit here
+			}
+			for (int d = 0; d < RADIX; d++) {
+				start[d + 1] += start[d];
+			}
+			for (int c = 0; c < m; c++) {
+				int to = start[digit(fromKeys[c], shift)]++;
+				toKeys[to] = fromKeys[c];
+				toValues[to] = fromValues[c];
+			}
+			long[] swapKeys = fromKeys;
+			fromKeys = toKeys;
+			toKeys = swapKeys;
+			int[] swapValues = fromValues;
+			fromValues = toValues;
+			toValues = swapValues;
+		}
+		if (fromKeys != keys) { // an odd number of passes left the result in the scratch arrays
+			System.arraycopy(fromKeys, 0, keys, 0, m);
+			System.arraycopy(fromValues, 0, values, 0, m);
+		}
+	}
+	
+	private static int digit(long key, int shift) {
+		return (int) (key >>> shift) & (RADIX - 1);
+	}
+}
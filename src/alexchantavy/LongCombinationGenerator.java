@@ -0,0 +1,248 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+
+/**
+ * <p>Systematically generates the combinations of r elements out of n in lexicographic order,
+ * like {@link CombinationGenerator}, but counts with primitive <code>long</code>s instead of 
+ * <code>BigInteger</code>.  Nothing is allocated after construction: {@link #getNext()} updates
+ * and returns the same array every time.</p>
+ * 
+ * <p>Binomial coefficients are taken from an exact Pascal's triangle.  Combinations are 
+ * numbered 0, 1, ..., C(n, r)-1 in the order they are generated, and {@link #rank(int[])} and 
+ * {@link #unrank(long)} convert between a combination and its number.  
+ * {@link #setRange(long, long)} restricts the generator to a contiguous range of numbers, so 
+ * the combination space can be split into independent pieces.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class LongCombinationGenerator {
+	private final int n;
+	private final int r;
+	private final int[] a;
+	private final long[][] binomial; // binomial[m][k] = C(m, k), Long.MAX_VALUE if it overflows
+	private final long total;
+	private long numLeft;
+	private boolean started;
+	
+	/**
+	 * Creates a combination generator to generate sets of r elements from n elements.
+	 * @param n The total number of elements
+	 * @param r The length of each combination
+	 * @throws IllegalArgumentException if r &lt; 0 or r &gt; n
+	 * @throws ArithmeticException if C(n, r) does not fit in a long, see {@link #fits(int, int)}
+	 */
+	public LongCombinationGenerator(int n, int r) {
+		if (r < 0 || r > n) {
+			throw new IllegalArgumentException("cannot choose " + r + " elements from " + n);
+		}
+		this.n = n;
+		this.r = r;
+		this.a = new int[r];
+		this.binomial = pascal(n, r);
+		this.total = binomial[n][r];
+		if (total == Long.MAX_VALUE) {
+			throw new ArithmeticException("C(" + n + ", " + r + ") does not fit in a long");
+		}
+		reset();
+	}
+	
+	/**
+	 * Determines whether the number of combinations of r elements from n fits in a long, 
+	 * i.e. whether a LongCombinationGenerator can be created for them.
+	 * @param n The total number of elements
+	 * @param r The length of each combination
+	 * @return true if C(n, r) is less than Long.MAX_VALUE
+	 */
+	public static boolean fits(int n, int r) {
+		if (r < 0 || r > n) {
+			return false;
+		}
+		return pascal(n, r)[n][r] != Long.MAX_VALUE;
+	}
+	
+	/**
+	 * Builds the rows 0..n of Pascal's triangle, columns 0..r.  Entries that overflow are 
+	 * saturated to Long.MAX_VALUE.  Every entry the generator reads is at most C(n, r), so 
+	 * those entries are exact whenever C(n, r) itself is.
+	 */
+	private static long[][] pascal(int n, int r) {
+		long[][] c = new long[n + 1][r + 1];
+		for (int m = 0; m <= n; m++) {
+			c[m][0] = 1;
+			for (int k = 1; k <= Math.min(m, r); k++) {
+				long sum = c[m-1][k-1] + c[m-1][k];
+				c[m][k] = (sum < 0 || c[m-1][k-1] == Long.MAX_VALUE || c[m-1][k] == Long.MAX_VALUE) 
+						? Long.MAX_VALUE : sum;
+			}
+		}
+		return c;
+	}
+	
+	/**
+	 * Resets the generator to the full range of combinations.
+	 */
+	public void reset() {
+		setRange(0, total);
+	}
+	
+	/**
+	 * Restricts the generator to the combinations numbered from (inclusive) to to (exclusive).
+	 * The next call to {@link #getNext()} returns combination number from.
+	 * @param from Number of the first combination to generate
+	 * @param to One past the number of the last combination to generate
+	 */
+	public void setRange(long from, long to) {
+		if (from < 0 || to > total || from > to) {
+			throw new IllegalArgumentException("invalid range [" + from + ", " + to + ")");
+		}
+		if (from < total) {
+			unrank(from, a);
+		}
+		numLeft = to - from;
+		started = false;
+	}
+	
+	/**
+	 * Returns number of combinations not yet generated.
+	 * @return The number of combinations not yet generated
+	 */
+	public long getNumLeft() {
+		return numLeft;
+	}
+	
+	/**
+	 * Determines if there are more combinations.
+	 * @return whether there are more combinations
+	 */
+	public boolean hasMore() {
+		return numLeft > 0;
+	}
+	
+	/**
+	 * Get the total number of combinations
+	 * @return The total number of combinations
+	 */
+	public long getTotal() {
+		return total;
+	}
+	
+	/**
+	 * Generates the next combination (algorithm from Rosen 2nd edition p 286).  The returned 
+	 * array is reused by the next call.
+	 * @return The indices of the next combination, in increasing order
+	 */
+	public int[] getNext() {
+		if (!started) {
+			started = true;
+		}
+		else {
+			int i = r - 1;
+			while (a[i] == n - r + i) {
+				i--;
+			}
+			a[i] = a[i] + 1;
+			for (int j = i + 1; j < r; j++) {
+				a[j] = a[i] + j - i;
+			}
+		}
+		numLeft--;
+		return a;
+	}
+	
+	/**
+	 * Returns the number of the given combination in generation order.
+	 * @param combination r distinct indices in increasing order, each less than n
+	 * @return The rank of the combination, between 0 and C(n, r)-1
+	 */
+	public long rank(int[] combination) {
+		long rank = 0;
+		int value = 0;
+		for (int i = 0; i < r; i++) {
+			// count the combinations that have a smaller element at position i
+			for (; value < combination[i]; value++) {
+				rank += binomial[n - 1 - value][r - 1 - i];
+			}
+			value++;
+		}
+		return rank;
+	}
+	
+	/**
+	 * Returns the combination with the given number in generation order.
+	 * @param rank A number between 0 and C(n, r)-1
+	 * @return A new array holding the combination
+	 */
+	public int[] unrank(long rank) {
+		if (rank < 0 || rank >= total) {
+			throw new IllegalArgumentException("rank " + rank + " out of range");
+		}
+		int[] combination = new int[r];
+		unrank(rank, combination);
+		return combination;
+	}
+	
+	/**
+	 * Writes the combination with the given number into the given array.
+	 */
+	private void unrank(long rank, int[] combination) {
+		int value = 0;
+		for (int i = 0; i < r; i++) {
+			// skip the blocks of combinations that start with a smaller element at position i
+			while (rank >= binomial[n - 1 - value][r - 1 - i]) {
+				rank -= binomial[n - 1 - value][r - 1 - i];
+				value++;
+			}
+			combination[i] = value;
+			value++;
+		}
+	}
+	
+	/**
+	 * Used for debug and test purposes.
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		String[] elements = {"a", "b", "c", "d", "e", "f", "g"};
+		LongCombinationGenerator x = new LongCombinationGenerator(elements.length, 3);
+		long expected = 0;
+		while (x.hasMore()) {
+			int[] indices = x.getNext();
+			StringBuffer combination = new StringBuffer();
+			for (int i = 0; i < indices.length; i++) {
+				combination.append(elements[indices[i]]);
+			}
+			System.out.println(combination.toString() + " rank " + x.rank(indices) + " (expected " + expected + ")");
+			expected++;
+		}
+		x.setRange(10, 13);
+		while (x.hasMore()) {
+			System.out.println(java.util.Arrays.toString(x.getNext()));
+		}
+		System.out.println(java.util.Arrays.toString(x.unrank(34)));
+		System.out.println("C(200, 23) fits in a long: " + LongCombinationGenerator.fits(200, 23));
+	}
+}
@@ -0,0 +1,386 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * <p>Reads a local polygon file by memory mapping it and parsing the numbers straight from the
+ * bytes.  No line strings, split arrays or vertex objects are created: the coordinates go 
+ * into two <code>double</code> arrays that become the {@link PackedPolygon} of the model, and
+ * duplicate points are found with an open addressing hash table of vertex indices.</p>
+ * 
+ * <p>The result is exactly the one of {@link PolygonModel#read(BufferedReader, boolean)}, error 
+ * codes and diagnostics included, and reading stops at the first error.  Numbers are parsed
+ * from the bytes when they are plain decimals that can be converted exactly: at most 15 
+ * significant digits, like the coordinates of polygon files.  Any other number, and any line
+ * that is not plain ASCII, is handed to {@link Double#parseDouble(String)} or 
+ * {@link Integer#parseInt(String)} so that it is accepted or rejected the same way as 
+ * before.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class MappedPolygonReader {
+	private static final long EXACT_LIMIT = 1L << 53; // integers up to here are exact doubles
+	private static final double[] POWERS = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	}; // the powers of ten that are exact doubles
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	private final ByteBuffer bytes;
+	private final int limit;
+	private int position = 0;
+	private int lineStart, lineEnd; // the current line, without its terminator
+	private double number;          // result of the last call to parseDouble
+	
+	private double[] xs, ys;
+	private int[] table; // vertex index + 1 of each hash slot, 0 for empty
+	
+	private MappedPolygonReader(ByteBuffer bytes) {
+		this.bytes = bytes;
+		this.limit = bytes.limit();
+	}
+	
+	/**
+	 * Reads a polygon file.  Files of 2 GB or more cannot be mapped in one piece and are read
+	 * with {@link PolygonModel#read(BufferedReader, boolean)} instead.
+	 * @param file The polygon text file
+	 * @param limits Whether to apply the limits of the applet: {@link Polygon#MAX_N} vertices and 
+	 * coordinates within {@link Polygon#MAX_X} and {@link Polygon#MAX_Y}
+	 * @return The polygon, or the error that stopped reading it
+	 * @throws java.io.FileNotFoundException If the file does not exist or cannot be opened
+	 * @throws IOException If the file cannot be read
+	 */
+	public static PolygonModel read(File file, boolean limits) throws IOException {
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		ByteBuffer bytes;
+		try {
+			FileChannel channel = input.getChannel();
+			long size = channel.size();
+			if (size >= Integer.MAX_VALUE) {
+				BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+				try {
+					return PolygonModel.read(reader, limits);
+				}
+				finally {
+					reader.close();
+				}
+			}
+			bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size); // stays valid after closing
+		}
+		finally {
+			input.close();
+		}
+		return new MappedPolygonReader(bytes).read(limits);
+	}
+	
+	/**
+	 * Returns the local file of a <code>file:</code> URL.
+	 * @param url The URL
+	 * @return The file, or null if the URL does not name a local file
+	 */
+	static File toFile(URL url) {
+		if (!url.getProtocol().equals("file")) {
+			return null;
+		}
+		try {
+			return new File(url.toURI());
+		}
+		catch (URISyntaxException e) {
+			return null;
+		}
+		catch (IllegalArgumentException e) {
+			return null; // has a host name or a query
+		}
+	}
+	
+	/**
+	 * Reads the lines of the file.  Follows {@link PolygonModel#read(BufferedReader, boolean)}
+	 * step by step, see there.
+	 */
+	private PolygonModel read(boolean limits) {
+		if (!nextLine()) {
+			return PolygonModel.error(-6, 0, 0, null); // empty file
+		}
+		int declared;
+		try {
+			declared = parseInt();
+		}
+		catch (NumberFormatException e) {
+			return PolygonModel.error(-6, 0, 0, null);
+		}
+		if (declared < 3) {
+			return PolygonModel.error(-10, declared, 0, null);
+		}
+		else if (limits && declared > Polygon.MAX_N) {
+			return PolygonModel.error(-8, declared, 0, null);
+		}
+		// every vertex line takes at least 2 bytes, so a file too short for the declared 
+		// vertices gives error 7 without allocating arrays for all of them
+		int capacity = Math.min(declared, (limit - position) / 2 + 1);
+		xs = new double[capacity];
+		ys = new double[capacity];
+		table = new int[Integer.highestOneBit(Math.max(2 * capacity - 1, 1)) << 1];
+		boolean missing = false; // a line held one number, so its vertex is never defined
+		for (int count = 1; count <= declared; count++) {
+			if (!nextLine()) {
+				return PolygonModel.error(-7, declared, count-1, null); // not all points are specified
+			}
+			int tab = find('\t', lineStart, lineEnd);
+			if (tab < 0) {
+				try {
+					parseInt(); // read as the number of vertices, like the first line
+				}
+				catch (NumberFormatException e) {
+					return PolygonModel.error(-6, declared, count-1, null);
+				}
+				missing = true;
+				continue;
+			}
+			int end = find('\t', tab + 1, lineEnd);
+			if (end < 0) {
+				end = lineEnd;
+			}
+			if (tab == lineStart || end == tab + 1 || !parseDouble(lineStart, tab)) {
+				return PolygonModel.error(-6, declared, count-1, null); // missing or bad number
+			}
+			double x = number;
+			if (!parseDouble(tab + 1, end)) {
+				return PolygonModel.error(-6, declared, count-1, null);
+			}
+			double y = number;
+			if (limits && (Math.abs(x) > Polygon.MAX_X || Math.abs(y) > Polygon.MAX_Y)) {
+				return PolygonModel.error(-14, declared, count-1, new Vertex(x, y, count-1));
+			}
+			if (!add(count-1, x, y)) {
+				return PolygonModel.error(-12, declared, count-1, new Vertex(x, y, count-1));
+			}
+		}
+		if (missing) {
+			return PolygonModel.error(-7, declared, declared, null);
+		}
+		PackedPolygon polygon = new PackedPolygon(xs, ys);
+		if (!SimplicitySweep.isSimple(polygon)) {
+			return PolygonModel.error(-13, declared, declared, null);
+		}
+		return PolygonModel.valid(polygon);
+	}
+	
+	/**
+	 * Moves to the next line.  Lines end with \n, \r or \r\n, like for {@link BufferedReader#readLine()}.
+	 * @return false at the end of the file
+	 */
+	private boolean nextLine() {
+		if (position >= limit) {
+			return false;
+		}
+		lineStart = position;
+		int i = position;
+		while (i < limit) {
+			byte b = bytes.get(i);
+			if (b == '\n' || b == '\r') {
+				break;
+			}
+			i++;
+		}
+		lineEnd = i;
+		if (i < limit && bytes.get(i) == '\r' && i + 1 < limit && bytes.get(i + 1) == '\n') {
+			i++;
+		}
+		position = i + 1;
+		return true;
+	}
+	
+	/**
+	 * @return The position of the first byte b in [from, to), or -1
+	 */
+	private int find(char b, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (bytes.get(i) == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Parses the current line as an int the way {@link Integer#parseInt(String)} does.
+	 * @throws NumberFormatException If it is not an int
+	 */
+	private int parseInt() {
+		int i = lineStart;
+		boolean negative = false;
+		if (i < lineEnd && (bytes.get(i) == '-' || bytes.get(i) == '+')) {
+			negative = bytes.get(i) == '-';
+			i++;
+		}
+		if (i == lineEnd || lineEnd - i > 9) {
+			return Integer.parseInt(text(lineStart, lineEnd)); // empty or maybe too long
+		}
+		int value = 0;
+		for (; i < lineEnd; i++) {
+			int digit = bytes.get(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return Integer.parseInt(text(lineStart, lineEnd));
+			}
+			value = 10 * value + digit;
+		}
+		return negative ? -value : value;
+	}
+	
+	/**
+	 * Parses [from, to) the way {@link Double#parseDouble(String)} does, into {@link #number}.  
+	 * A plain decimal with at most 15 significant digits and a power of ten within 22 is 
+	 * converted exactly: both the digits and the power are exact doubles, so one correctly 
+	 * rounded multiplication or division gives the nearest double, as parseDouble does.
+	 * @return false if it is not a number
+	 */
+	private boolean parseDouble(int from, int to) {
+		int i = from;
+		boolean negative = false;
+		if (bytes.get(i) == '-' || bytes.get(i) == '+') {
+			negative = bytes.get(i) == '-';
+			i++;
+		}
+		long digits = 0;
+		int seen = 0, count = 0; // digits read, and significant digits read
+		int scale = 0;           // power of ten of the last digit
+		boolean point = false;
+		for (; i < to; i++) {
+			byte b = bytes.get(i);
+			if (b >= '0' && b <= '9') {
+				seen++;
+				if (digits != 0 || b != '0') {
+					count++;
+				}
+				digits = 10 * digits + (b - '0');
+				if (point) {
+					scale--;
+				}
+				if (count > 15) {
+					return parseSlowly(from, to);
+				}
+			}
+			else if (b == '.' && !point) {
+				point = true;
+			}
+			else {
+				break;
+			}
+		}
+		if (i < to && (bytes.get(i) == 'e' || bytes.get(i) == 'E')) {
+			int j = i + 1;
+			boolean negativeExponent = false;
+			if (j < to && (bytes.get(j) == '-' || bytes.get(j) == '+')) {
+				negativeExponent = bytes.get(j) == '-';
+				j++;
+			}
+			if (j == to || to - j > 3) {
+				return parseSlowly(from, to);
+			}
+			int exponent = 0;
+			for (; j < to; j++) {
+				int digit = bytes.get(j) - '0';
+				if (digit < 0 || digit > 9) {
+					return parseSlowly(from, to);
+				}
+				exponent = 10 * exponent + digit;
+			}
+			scale += negativeExponent ? -exponent : exponent;
+			i = to;
+		}
+		if (i < to || seen == 0 || digits >= EXACT_LIMIT || scale > 22 || scale < -22) {
+			return parseSlowly(from, to);
+		}
+		double value = scale >= 0 ? digits * POWERS[scale] : digits / POWERS[-scale];
+		number = negative ? -value : value;
+		return true;
+	}
+	
+	/**
+	 * Parses [from, to) with {@link Double#parseDouble(String)}, into {@link #number}.
+	 * @return false if it is not a number
+	 */
+	private boolean parseSlowly(int from, int to) {
+		try {
+			number = Double.parseDouble(text(from, to));
+			return true;
+		}
+		catch (NumberFormatException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * @return The bytes [from, to) decoded like the text reader decodes them
+	 */
+	private String text(int from, int to) {
+		byte[] chars = new byte[to - from];
+		for (int i = from; i < to; i++) {
+			chars[i - from] = bytes.get(i);
+		}
+		return new String(chars, UTF8);
+	}
+	
+	/**
+	 * Adds a vertex to the coordinate arrays unless an equal point is already there.  Points are 
+	 * equal as for {@link Vertex#equals(Vertex)}: 0.0 equals -0.0, and a point with a NaN 
+	 * coordinate equals nothing.
+	 * @return false if the point is a duplicate
+	 */
+	private boolean add(int index, double x, double y) {
+		xs[index] = x;
+		ys[index] = y;
+		if (x != x || y != y) {
+			return true; // NaN
+		}
+		long bits = Double.doubleToLongBits(x + 0.0) * 31 + Double.doubleToLongBits(y + 0.0);
+		bits ^= bits >>> 33;
+		bits *= 0xff51afd7ed558ccdL;
+		bits ^= bits >>> 33;
+		int mask = table.length - 1;
+		for (int slot = (int) bits & mask; ; slot = (slot + 1) & mask) {
+			int other = table[slot] - 1;
+			if (other < 0) {
+				table[slot] = index + 1;
+				return true;
+			}
+			if (xs[other] == x && ys[other] == y) {
+				return false;
+			}
+		}
+	}
+}
@@ -0,0 +1,562 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.TreeSet;
+
+/**
+ * <p>Triangulates large simple polygons in O(n log n) time.  The triangulation is <i>not</i>
+ * optimal in the sense of {@link Polygon#optimalTriangulation(Vertex[], ArrayList)}; it is meant 
+ * for polygons with hundreds of thousands of vertices, where throughput is what matters.</p>
+ * 
+ * <p>The polygon is first split into y-monotone pieces with a plane sweep from top to bottom, 
+ * which removes the split and merge vertices by connecting them to the "helper" of the edge 
+ * directly to their left.  Each monotone piece is then triangulated in linear time with a 
+ * stack, walking down its left and right chains.</p>
+ * 
+ * <p>Vertices with equal y coordinates are ordered by x, as if the plane were sheared very 
+ * slightly, so horizontal edges need no special cases.  The sweep status is ordered with 
+ * orientation tests only, which a shear does not change.</p>
+ * 
+ * @source <i>Computational Geometry: Algorithms and Applications, 3rd edition</i>, de Berg, 
+ * Cheong, van Kreveld and Overmars, chapter 3
+ * @author Alex Chantavy
+ */
+public class MonotoneTriangulator {
+	// vertex types of the sweep
+	private static final byte START = 0;
+	private static final byte SPLIT = 1;
+	private static final byte END = 2;
+	private static final byte MERGE = 3;
+	private static final byte REGULAR = 4;
+	
+	private static final int QUERY = -1; // stands for the query point in the sweep status
+	
+	private final int n;
+	private final double[] xs; // coordinates in counterclockwise order
+	private final double[] ys;
+	private final int[] ids;   // original vertex id of each counterclockwise position
+	private int[] from = new int[16];
+	private int[] to = new int[16];
+	private int count = 0;     // number of diagonals found so far
+	private double queryX, queryY;
+	
+	/**
+	 * Triangulates the given simple polygon.
+	 * @param vertices The vertices of the polygon, in clockwise or counterclockwise order
+	 * @return The n-3 diagonals of a triangulation
+	 */
+	public static ArrayList<Chord> triangulate(Vertex[] vertices) {
+		int[] pairs = diagonals(vertices);
+		ArrayList<Chord> chords = new ArrayList<Chord>(pairs.length / 2);
+		for (int k = 0; k < pairs.length; k += 2) {
+			chords.add(new Chord(pairs[k], pairs[k+1], vertices));
+		}
+		return chords;
+	}
+	
+	/**
+	 * Triangulates the given simple polygon without creating Chord objects.
+	 * @param vertices The vertices of the polygon, in clockwise or counterclockwise order
+	 * @return The vertex ids of the n-3 diagonals of a triangulation, as pairs: the diagonal k
+	 * connects vertices pairs[2k] and pairs[2k+1], the smaller id first.
+	 */
+	public static int[] diagonals(Vertex[] vertices) {
+		return diagonals(new PackedPolygon(vertices));
+	}
+	
+	/**
+	 * Triangulates the given simple polygon, see {@link #diagonals(Vertex[])}.
+	 * @param polygon The polygon, in clockwise or counterclockwise order
+	 * @return The vertex ids of the n-3 diagonals of a triangulation, as pairs
+	 * @throws IllegalArgumentException if a coordinate is NaN or infinite
+	 */
+	public static int[] diagonals(PackedPolygon polygon) {
+		if (polygon.size() <= 3) {
+			return new int[0]; // already a triangle, perhaps a flat one that the sweep cannot take
+		}
+		if (!polygon.isFinite()) {
+			throw new IllegalArgumentException("the sweep cannot order coordinates that are not finite");
+		}
+		MonotoneTriangulator t = new MonotoneTriangulator(polygon);
+		t.partition();
+		int monotoneDiagonals = t.count;
+		ArrayList<int[]> pieces = t.faces(monotoneDiagonals);
+		for (int[] piece : pieces) {
+			t.triangulateMonotone(piece);
+		}
+		int[] pairs = new int[2 * t.count];
+		for (int k = 0; k < t.count; k++) {
+			int a = t.ids[t.from[k]];
+			int b = t.ids[t.to[k]];
+			pairs[2*k] = Math.min(a, b);
+			pairs[2*k+1] = Math.max(a, b);
+		}
+		return pairs;
+	}
+	
+	/**
+	 * Copies the polygon into counterclockwise order.
+	 */
+	private MonotoneTriangulator(PackedPolygon polygon) {
+		n = polygon.size();
+		xs = new double[n];
+		ys = new double[n];
+		ids = new int[n];
+		for (int i = 0; i < n; i++) {
+			xs[i] = polygon.x(i);
+			ys[i] = polygon.y(i);
+		}
+		// the lowest vertex is convex, so the turn there gives the orientation; the sign 
+		// of the area sum is rounded and can come out wrong for a thin polygon
+		int low = 0;
+		for (int v = 1; v < n; v++) {
+			if (above(low, v)) {
+				low = v;
+			}
+		}
+		boolean clockwise = orient((low + n - 1) % n, low, (low + 1) % n) < 0;
+		for (int i = 0; i < n; i++) {
+			ids[i] = clockwise ? n - 1 - i : i;
+		}
+		if (clockwise) {
+			reverse(xs);
+			reverse(ys);
+		}
+	}
+	
+	/**
+	 * Reverses the array in place.
+	 */
+	private static void reverse(double[] a) {
+		for (int i = 0, j = a.length - 1; i < j; i++, j--) {
+			double t = a[i];
+			a[i] = a[j];
+			a[j] = t;
+		}
+	}
+	
+	/**
+	 * Records the diagonal (a, b), given in counterclockwise positions.
+	 */
+	private void addDiagonal(int a, int b) {
+		if (count == from.length) {
+			from = Arrays.copyOf(from, 2 * count);
+			to = Arrays.copyOf(to, 2 * count);
+		}
+		from[count] = a;
+		to[count] = b;
+		count++;
+	}
+	
+	/**
+	 * Returns positive if a, b, c turn counterclockwise, negative if clockwise, 0 if collinear.
+	 */
+	private double orient(int a, int b, int c) {
+		return -Orientation.direction(xs[a], ys[a], xs[b], ys[b], xs[c], ys[c]);
+	}
+	
+	/**
+	 * Determines if vertex a comes before vertex b in the sweep, i.e. is higher, or as high 
+	 * and further left.
+	 */
+	private boolean above(int a, int b) {
+		return ys[a] > ys[b] || (ys[a] == ys[b] && xs[a] < xs[b]);
+	}
+	
+	/**
+	 * Orders the edges in the sweep status from left to right.  Edge e joins positions e and e+1.
+	 * Of two edges, the one whose upper end point is lower is compared against the other one,
+	 * since that end point is within the vertical extent of the other edge.
+	 */
+	private final Comparator<Integer> leftToRight = new Comparator<Integer>() {
+		public int compare(Integer a, Integer b) {
+			int e = a, f = b;
+			if (e == f) {
+				return 0;
+			}
+			if (e == QUERY) {
+				return westOf(queryX, queryY, f) ? -1 : 1;
+			}
+			if (f == QUERY) {
+				return westOf(queryX, queryY, e) ? 1 : -1;
+			}
+			int eUpper = upper(e), fUpper = upper(f);
+			if (eUpper == fUpper || above(fUpper, eUpper)) {
+				double o = orient(fUpper, lower(f), eUpper);
+				if (o == 0) {
+					o = orient(fUpper, lower(f), lower(e));
+				}
+				return o < 0 ? -1 : 1;
+			}
+			return -compare(b, a);
+		}
+	};
+	
+	/**
+	 * Returns the upper end point of edge e.
+	 */
+	private int upper(int e) {
+		int next = (e + 1) % n;
+		return above(e, next) ? e : next;
+	}
+	
+	/**
+	 * Returns the lower end point of edge e.
+	 */
+	private int lower(int e) {
+		int next = (e + 1) % n;
+		return above(e, next) ? next : e;
+	}
+	
+	/**
+	 * Determines whether the point (x, y) is west of edge e, i.e. on the right of the edge 
+	 * directed downward.
+	 */
+	private boolean westOf(double x, double y, int e) {
+		int u = upper(e), l = lower(e);
+		return Orientation.direction(xs[u], ys[u], xs[l], ys[l], x, y) > 0;
+	}
+	
+	/**
+	 * Splits the polygon into y-monotone pieces by adding diagonals at split and merge vertices.
+	 */
+	private void partition() {
+		byte[] type = new byte[n];
+		for (int v = 0; v < n; v++) {
+			int prev = (v + n - 1) % n;
+			int next = (v + 1) % n;
+			boolean convex = orient(prev, v, next) > 0;
+			if (above(v, prev) && above(v, next)) {
+				type[v] = convex ? START : SPLIT;
+			}
+			else if (above(prev, v) && above(next, v)) {
+				type[v] = convex ? END : MERGE;
+			}
+			else {
+				type[v] = REGULAR;
+			}
+		}
+		
+		int[] helper = new int[n]; // helper[e] of the edge e = (e, e+1)
+		TreeSet<Integer> status = new TreeSet<Integer>(leftToRight);
+		for (int v : PackedPolygon.sweepOrder(xs, ys)) {
+			int prev = (v + n - 1) % n; // the edge (prev, v) is edge number prev
+			switch (type[v]) {
+			case START:
+				status.add(v);
+				helper[v] = v;
+				break;
+			case END:
+				if (type[helper[prev]] == MERGE) {
+					addDiagonal(v, helper[prev]);
+				}
+				status.remove(prev);
+				break;
+			case SPLIT: {
+				int left = leftOf(v, status);
+				addDiagonal(v, helper[left]);
+				helper[left] = v;
+				status.add(v);
+				helper[v] = v;
+				break;
+			}
+			case MERGE: {
+				if (type[helper[prev]] == MERGE) {
+					addDiagonal(v, helper[prev]);
+				}
+				status.remove(prev);
+				int left = leftOf(v, status);
+				if (type[helper[left]] == MERGE) {
+					addDiagonal(v, helper[left]);
+				}
+				helper[left] = v;
+				break;
+			}
+			default:
+				if (above(prev, v)) { // the interior of the polygon lies to the right of v
+					if (type[helper[prev]] == MERGE) {
+						addDiagonal(v, helper[prev]);
+					}
+					status.remove(prev);
+					status.add(v);
+					helper[v] = v;
+				}
+				else {
+					int left = leftOf(v, status);
+					if (type[helper[left]] == MERGE) {
+						addDiagonal(v, helper[left]);
+					}
+					helper[left] = v;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the edge in the sweep status directly to the left of vertex v.
+	 * @throws IllegalStateException if there is none, which only happens if the polygon is not 
+	 * simple
+	 */
+	private int leftOf(int v, TreeSet<Integer> status) {
+		queryX = xs[v];
+		queryY = ys[v];
+		Integer left = status.lower(QUERY);
+		if (left == null) {
+			throw new IllegalStateException("no edge left of vertex " + ids[v] + ", the polygon is not simple");
+		}
+		return left;
+	}
+	
+	/**
+	 * Splits the polygon along the first diagonals into faces.
+	 * @param diagonals The number of diagonals to split along
+	 * @return The vertex positions of each face, in counterclockwise order
+	 */
+	private ArrayList<int[]> faces(int diagonals) {
+		// adjacency lists: slot s is the half edge from owner[s] to target[s]
+		int edges = n + diagonals;
+		int[] start = new int[n + 1];
+		for (int v = 0; v < n; v++) {
+			start[v] += 2; // the two boundary neighbors
+		}
+		for (int k = 0; k < diagonals; k++) {
+			start[from[k]]++;
+			start[to[k]]++;
+		}
+		for (int v = 0, sum = 0; v <= n; v++) { // prefix sums
+			int degree = start[v];
+			start[v] = sum;
+			sum += degree;
+		}
+		int[] fill = start.clone();
+		int[] target = new int[2 * edges];
+		int[] edgeOf = new int[2 * edges];
+		int[] slotsOf = new int[2 * edges]; // the two slots of each undirected edge
+		for (int e = 0; e < edges; e++) {
+			int a = (e < n) ? e : from[e - n];
+			int b = (e < n) ? (e + 1) % n : to[e - n];
+			int sa = fill[a]++;
+			int sb = fill[b]++;
+			target[sa] = b;
+			target[sb] = a;
+			edgeOf[sa] = e;
+			edgeOf[sb] = e;
+		}
+		// sort every adjacency list counterclockwise by angle
+		int[] slot = new int[2 * edges];
+		for (int v = 0; v < n; v++) {
+			for (int s = start[v]; s < start[v+1]; s++) {
+				slot[s] = s;
+			}
+			sortByAngle(slot, start[v], start[v+1], v, target);
+		}
+		int[] sortedTarget = new int[2 * edges];
+		int[] position = new int[2 * edges]; // position of an original slot after sorting
+		for (int p = 0; p < 2 * edges; p++) {
+			sortedTarget[p] = target[slot[p]];
+			position[slot[p]] = p;
+		}
+		Arrays.fill(slotsOf, -1);
+		for (int s = 0; s < 2 * edges; s++) {
+			int e = edgeOf[s];
+			slotsOf[2 * e + (slotsOf[2 * e] == -1 ? 0 : 1)] = position[s];
+		}
+		int[] twin = new int[2 * edges];
+		for (int e = 0; e < edges; e++) {
+			twin[slotsOf[2 * e]] = slotsOf[2 * e + 1];
+			twin[slotsOf[2 * e + 1]] = slotsOf[2 * e];
+		}
+		int[] owner = new int[2 * edges];
+		for (int v = 0; v < n; v++) {
+			for (int p = start[v]; p < start[v+1]; p++) {
+				owner[p] = v;
+			}
+		}
+		
+		// walk the faces, keeping the interior on the left.  The reversed boundary edges belong
+		// to the outside face and are never walked.
+		boolean[] used = new boolean[2 * edges];
+		for (int p = 0; p < 2 * edges; p++) {
+			int v = owner[p];
+			if (sortedTarget[p] == (v + n - 1) % n) {
+				used[p] = true;
+			}
+		}
+		ArrayList<int[]> faces = new ArrayList<int[]>();
+		int[] cycle = new int[n];
+		for (int p = 0; p < 2 * edges; p++) {
+			int length = 0;
+			int h = p;
+			while (!used[h]) {
+				used[h] = true;
+				cycle[length++] = owner[h];
+				// next half edge: the neighbor preceding the one we came from, around the target
+				int back = twin[h];
+				int v = owner[back];
+				h = (back == start[v]) ? start[v+1] - 1 : back - 1;
+			}
+			if (length > 0) {
+				faces.add(Arrays.copyOf(cycle, length));
+			}
+		}
+		return faces;
+	}
+	
+	/**
+	 * Insertion sorts slot[lo..hi) by the angle of the half edges from v to target[slot].  
+	 * Adjacency lists are short except around a few vertices, so this is cheap.
+	 */
+	private void sortByAngle(int[] slot, int lo, int hi, final int v, final int[] target) {
+		if (hi - lo > 32) {
+			Integer[] boxed = new Integer[hi - lo];
+			for (int i = lo; i < hi; i++) {
+				boxed[i - lo] = slot[i];
+			}
+			Arrays.sort(boxed, new Comparator<Integer>() {
+				public int compare(Integer a, Integer b) {
+					return compareAngle(v, target[a], target[b]);
+				}
+			});
+			for (int i = lo; i < hi; i++) {
+				slot[i] = boxed[i - lo];
+			}
+			return;
+		}
+		for (int i = lo + 1; i < hi; i++) {
+			int s = slot[i];
+			int j = i - 1;
+			while (j >= lo && compareAngle(v, target[slot[j]], target[s]) > 0) {
+				slot[j+1] = slot[j];
+				j--;
+			}
+			slot[j+1] = s;
+		}
+	}
+	
+	/**
+	 * Compares the directions from v to a and from v to b counterclockwise, starting just after
+	 * the negative x axis.  Directions in different half planes compare by their half plane; 
+	 * within one half plane they are less than a half turn apart, so the orientation of v, a, b
+	 * orders them.  Angles from atan2 are not used because two directions that differ by less 
+	 * than their rounding error would tie, and the face walk would follow the wrong edge.
+	 * @return negative if a comes first, positive if b comes first, zero if the same direction
+	 */
+	private int compareAngle(int v, int a, int b) {
+		int halfA = half(ys[a] - ys[v], xs[a] - xs[v]);
+		int halfB = half(ys[b] - ys[v], xs[b] - xs[v]);
+		if (halfA != halfB) {
+			return halfA - halfB;
+		}
+		double turn = orient(v, a, b); // positive if b is counterclockwise from a
+		return turn > 0 ? -1 : turn < 0 ? 1 : 0;
+	}
+	
+	/**
+	 * The sign of a difference of doubles is exact, so the half plane is too.
+	 * @return 0 for directions below the x axis or along the positive x axis, 1 otherwise
+	 */
+	private static int half(double dy, double dx) {
+		return (dy < 0 || (dy == 0 && dx > 0)) ? 0 : 1;
+	}
+	
+	/**
+	 * Triangulates a y-monotone piece given in counterclockwise order.
+	 */
+	private void triangulateMonotone(int[] piece) {
+		int k = piece.length;
+		if (k <= 3) {
+			return;
+		}
+		int top = 0, bottom = 0;
+		for (int i = 1; i < k; i++) {
+			if (above(piece[i], piece[top])) {
+				top = i;
+			}
+			if (above(piece[bottom], piece[i])) {
+				bottom = i;
+			}
+		}
+		// merge the left chain (counterclockwise from the top) with the right chain into sweep order
+		int[] sorted = new int[k];
+		boolean[] left = new boolean[k];
+		sorted[0] = piece[top];
+		left[0] = true;
+		int l = (top + 1) % k;
+		int r = (top + k - 1) % k;
+		for (int i = 1; i < k; i++) {
+			if (r == bottom || (l != bottom && above(piece[l], piece[r]))) {
+				sorted[i] = piece[l];
+				left[i] = true;
+				l = (l + 1) % k;
+			}
+			else {
+				sorted[i] = piece[r];
+				left[i] = false;
+				r = (r + k - 1) % k;
+			}
+		}
+		
+		int[] stack = new int[k]; // indices into sorted
+		int size = 0;
+		stack[size++] = 0;
+		stack[size++] = 1;
+		for (int j = 2; j < k - 1; j++) {
+			if (left[j] != left[stack[size-1]]) {
+				// opposite chains: connect to every vertex on the stack but the bottom one
+				for (int s = size - 1; s > 0; s--) {
+					addDiagonal(sorted[j], sorted[stack[s]]);
+				}
+				int previous = stack[size-1];
+				size = 0;
+				stack[size++] = previous;
+				stack[size++] = j;
+			}
+			else {
+				int last = stack[--size];
+				while (size > 0 && inside(sorted[j], sorted[last], sorted[stack[size-1]], left[j])) {
+					last = stack[--size];
+					addDiagonal(sorted[j], sorted[last]);
+				}
+				stack[size++] = last;
+				stack[size++] = j;
+			}
+		}
+		for (int s = size - 2; s > 0; s--) {
+			addDiagonal(sorted[k-1], sorted[stack[s]]);
+		}
+	}
+	
+	/**
+	 * Determines whether the diagonal from v to t is inside the piece, where last lies between
+	 * them on the same chain.
+	 */
+	private boolean inside(int v, int last, int t, boolean leftChain) {
+		return leftChain ? orient(t, last, v) > 0 : orient(v, last, t) > 0;
+	}
+}
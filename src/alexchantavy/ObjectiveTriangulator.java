@@ -0,0 +1,233 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+
+/**
+ * <p>Computes triangulations of a polygon that are optimal for one or more 
+ * {@link Objective objectives}, with the interval recurrence of {@link IntervalTriangulator}
+ * generalized over the way the cost of a triangulation is built from the lengths of its 
+ * diagonals:</p>
+ * 
+ * <pre>
+ *   best[i][j] = min over k of combine(best[i][k], best[k][j], w(i, k), w(k, j))
+ * </pre>
+ * 
+ * <p>where combine is max for the min-max objective and + for the minimum weight one, each 
+ * with 0 as the cost of a boundary edge.  Finding the diagonals is done once, when the 
+ * triangulator is created, and all objectives asked for together fill their tables in one 
+ * sweep over the intervals, so each further objective only adds the inner arithmetic, not 
+ * another O(n<sup>3</sup>) pass over the diagonal matrix.  The lengths are computed from the
+ * coordinates as the sweep needs them rather than kept in a table, since the n by n tables 
+ * are what limits the size of the polygons that can be solved.</p>
+ * 
+ * <p>Min-max then min-sum is not a recurrence of its own: the lexicographic order is not 
+ * kept by max, since a sub-triangulation with a smaller maximum but a larger sum can lose 
+ * once a longer diagonal hides its maximum.  It is solved as the minimum weight triangulation
+ * using only diagonals no longer than the min-max optimum, in a second sweep over the same 
+ * tables after the first has found that optimum.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class ObjectiveTriangulator {
+	/**
+	 * The cost a triangulation minimizes.
+	 */
+	public enum Objective {
+		/** The length of the longest diagonal, as in {@link Polygon#optimalTriangulation(Vertex[], ArrayList)} */
+		MIN_MAX {
+			double combine(double cost, double weight) {
+				return Math.max(cost, weight);
+			}
+		},
+		/** The total length of the diagonals: the minimum weight triangulation */
+		MIN_SUM {
+			double combine(double cost, double weight) {
+				return cost + weight;
+			}
+		},
+		/** The longest diagonal first, then among those triangulations the total length */
+		MIN_MAX_THEN_SUM {
+			double combine(double cost, double weight) {
+				return cost + weight;
+			}
+		};
+		
+		/**
+		 * Adds the weight of a diagonal, or of two triangulations, to a cost.
+		 */
+		abstract double combine(double cost, double weight);
+	}
+	
+	private final Vertex[] vertices;
+	private final int n;
+	private final PackedPolygon polygon;
+	private final DiagonalMatrix diagonal;
+	private final EnumMap<Objective, double[][]> best = new EnumMap<Objective, double[][]>(Objective.class);
+	private final EnumMap<Objective, int[][]> split = new EnumMap<Objective, int[][]>(Objective.class);
+	
+	/**
+	 * Finds the diagonals of the polygon.
+	 * @param vertices Array of vertices of the polygon
+	 */
+	public ObjectiveTriangulator(Vertex[] vertices) {
+		this.vertices = vertices;
+		this.n = vertices.length;
+		this.polygon = new PackedPolygon(vertices);
+		this.diagonal = new DiagonalMatrix(polygon);
+	}
+	
+	/**
+	 * Generates a triangulation that is optimal for the given objective.
+	 * @param objective The cost to minimize
+	 * @return The n-3 diagonals of the triangulation, sorted from least to greatest length.
+	 * Empty if the polygon is a triangle, null if the polygon cannot be triangulated with its 
+	 * diagonals.
+	 */
+	public ArrayList<Chord> triangulate(Objective objective) {
+		return solve(objective).get(objective);
+	}
+	
+	/**
+	 * Generates a triangulation for each of the given objectives, sharing the diagonals and the
+	 * sweep over the intervals between them.  Objectives solved before are not solved again.
+	 * @param objectives The costs to minimize
+	 * @return The triangulation of each objective, as returned by {@link #triangulate(Objective)}
+	 */
+	public EnumMap<Objective, ArrayList<Chord>> solve(Objective... objectives) {
+		ArrayList<Objective> first = new ArrayList<Objective>();
+		boolean bounded = false;
+		for (Objective objective : objectives) {
+			// the bound of min-max then min-sum comes from the min-max optimum
+			Objective needed = objective == Objective.MIN_MAX_THEN_SUM ? Objective.MIN_MAX : objective;
+			bounded |= objective == Objective.MIN_MAX_THEN_SUM && !best.containsKey(objective);
+			if (!best.containsKey(needed) && !first.contains(needed)) {
+				first.add(needed);
+			}
+		}
+		fill(first, Double.POSITIVE_INFINITY);
+		if (bounded) {
+			ArrayList<Objective> second = new ArrayList<Objective>();
+			second.add(Objective.MIN_MAX_THEN_SUM);
+			fill(second, getCost(Objective.MIN_MAX));
+		}
+		
+		EnumMap<Objective, ArrayList<Chord>> triangulations = new EnumMap<Objective, ArrayList<Chord>>(Objective.class);
+		for (Objective objective : objectives) {
+			int[][] table = split.get(objective);
+			triangulations.put(objective, n > 3 && table[0][n-1] == -1 ? null : 
+				IntervalTriangulator.collectTriangulation(table, diagonal, vertices));
+		}
+		return triangulations;
+	}
+	
+	/**
+	 * Returns the optimal cost found for the given objective.  For 
+	 * {@link Objective#MIN_MAX_THEN_SUM} it is the total length; the maximum is the cost of 
+	 * {@link Objective#MIN_MAX}.
+	 * @param objective An objective that has been solved
+	 * @return The cost of the optimal triangulation, 0 for a triangle, or infinity if the 
+	 * polygon cannot be triangulated
+	 */
+	public double getCost(Objective objective) {
+		if (!best.containsKey(objective)) {
+			throw new IllegalStateException(objective + " has not been solved");
+		}
+		return n < 3 ? 0 : best.get(objective)[0][n-1];
+	}
+	
+	/**
+	 * Fills the tables of the given objectives in one sweep over the intervals.
+	 * @param objectives The objectives to solve
+	 * @param limit Diagonals longer than this may not be used
+	 */
+	private void fill(ArrayList<Objective> objectives, double limit) {
+		int m = objectives.size();
+		if (m == 0) {
+			return;
+		}
+		Objective[] objective = objectives.toArray(new Objective[m]);
+		double[][][] bests = new double[m][][];
+		int[][][] splits = new int[m][][];
+		for (int t = 0; t < m; t++) {
+			bests[t] = new double[n][n];
+			splits[t] = new int[n][n];
+			for (int i = 0; i < n; i++) {
+				Arrays.fill(bests[t][i], Double.POSITIVE_INFINITY);
+				Arrays.fill(splits[t][i], -1);
+			}
+			for (int i = 0; i + 1 < n; i++) {
+				bests[t][i][i+1] = 0; //a boundary edge needs no diagonals
+			}
+			best.put(objective[t], bests[t]);
+			split.put(objective[t], splits[t]);
+		}
+		
+		for (int gap = 2; gap < n; gap++) {
+			for (int i = 0; i + gap < n; i++) {
+				int j = i + gap;
+				if (!usable(i, j, limit) && !(i == 0 && j == n-1)) {
+					continue; // (i, j) is not a side of any sub-polygon
+				}
+				for (int k = i + 1; k < j; k++) {
+					double left = -1, right = -1; // w(i, k) and w(k, j), once found
+					for (int t = 0; t < m; t++) { // a finite cost means the side was usable
+						double[][] b = bests[t];
+						if (b[i][k] == Double.POSITIVE_INFINITY || b[k][j] == Double.POSITIVE_INFINITY) {
+							continue;
+						}
+						if (left < 0) {
+							left = weight(i, k);
+							right = weight(k, j);
+						}
+						Objective o = objective[t];
+						double cost = o.combine(o.combine(o.combine(b[i][k], b[k][j]), left), right);
+						if (cost < b[i][j]) {
+							b[i][j] = cost;
+							splits[t][i][j] = k;
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Determines whether (i, j), with i &lt; j, is a boundary edge or a diagonal no longer than limit.
+	 */
+	private boolean usable(int i, int j, double limit) {
+		return j == i + 1 || (diagonal.isDiagonal(i, j) && polygon.length(i, j) <= limit);
+	}
+	
+	/**
+	 * @return The length of (i, j) if it is a diagonal, 0 for a boundary edge
+	 */
+	private double weight(int i, int j) {
+		return diagonal.isDiagonal(i, j) ? polygon.length(i, j) : 0;
+	}
+}
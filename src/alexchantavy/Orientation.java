@@ -0,0 +1,156 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.math.BigDecimal;
+
+/**
+ * <p>Robust orientation test for three points, used by {@link Vertex#direction(Vertex, Vertex, Vertex)} 
+ * and the kernels of {@link PackedPolygon}.</p>
+ * 
+ * <p>The cross product is first computed in floating point, as before.  Each of its two products
+ * and the differences they are made of may be rounded, but the total error is at most 
+ * {@link #ERROR_BOUND} times the sum of the magnitudes of the two products (Shewchuk's bound for 
+ * orient2d).  If the result is larger than that its sign is certain and it is returned as is, 
+ * which is the case for all but nearly collinear points.</p>
+ * 
+ * <p>Otherwise the sign is found exactly, so a collinear triple always gives 0 and a tiny turn 
+ * is never mistaken for a collinear one or for the opposite turn.  When the coordinate 
+ * differences are exact, as they are for points on a grid, the two products are split into 
+ * exact sums of two doubles and their difference is evaluated as an exact four term 
+ * expansion, which costs a few dozen flops.  Only when a difference itself was rounded is the 
+ * cross product evaluated with <code>BigDecimal</code>.</p>
+ * 
+ * @source Jonathan Richard Shewchuk, <i>Adaptive Precision Floating-Point Arithmetic and Fast 
+ * Robust Geometric Predicates</i>.  Discrete &amp; Computational Geometry 18, 1997
+ * @author Alex Chantavy
+ */
+public class Orientation {
+	/** Half a unit in the last place of 1.0, the relative rounding error of one operation. */
+	public static final double EPSILON = Math.ulp(1.0) / 2;
+	/** Relative error bound of the floating point cross product. */
+	public static final double ERROR_BOUND = (3 + 16 * EPSILON) * EPSILON;
+	
+	private static final double SPLITTER = 134217729; // 2^27 + 1, splits a double into two halves
+	
+	private Orientation() {
+	}
+	
+	/**
+	 * Determines if the consecutive line segments p0p1 p1p2 turn left or right at p1, with the 
+	 * same sign convention as {@link Vertex#direction(Vertex, Vertex, Vertex)}.
+	 * @param x0 x coordinate of the first point
+	 * @param y0 y coordinate of the first point
+	 * @param x1 x coordinate of the anchor point
+	 * @param y1 y coordinate of the anchor point
+	 * @param x2 x coordinate of the last point
+	 * @param y2 y coordinate of the last point
+	 * @return positive if p2 is right, negative if p2 is left, zero if collinear.  The sign is 
+	 * always exact; when the floating point value was too close to zero to trust, the result 
+	 * is -1, 0 or 1.
+	 */
+	public static double direction(double x0, double y0, double x1, double y1, double x2, double y2) {
+		double left = (x2 - x0) * (y1 - y0);
+		double right = (x1 - x0) * (y2 - y0);
+		double det = left - right;
+		double bound = ERROR_BOUND * (Math.abs(left) + Math.abs(right));
+		if (det >= bound || -det >= bound) {
+			return det;
+		}
+		return exactSign(x0, y0, x1, y1, x2, y2);
+	}
+	
+	/**
+	 * Computes the sign of the cross product of {@link #direction} exactly.
+	 * @return 1 if p2 is right, -1 if p2 is left, 0 if collinear
+	 */
+	public static int exactSign(double x0, double y0, double x1, double y1, double x2, double y2) {
+		double ax = x2 - x0, ay = y1 - y0, bx = x1 - x0, by = y2 - y0;
+		if (diffTail(x2, x0, ax) == 0 && diffTail(y1, y0, ay) == 0 &&
+				diffTail(x1, x0, bx) == 0 && diffTail(y2, y0, by) == 0) {
+			// left = ax*ay and right = bx*by are each an exact sum of two doubles
+			double left = ax * ay, leftTail = productTail(ax, ay, left);
+			double right = bx * by, rightTail = productTail(bx, by, right);
+			// (left + leftTail) - (right + rightTail) as the expansion e3 + e2 + e1 + e0
+			double i = leftTail - rightTail;
+			double e0 = diffTail(leftTail, rightTail, i);
+			double j = left + i;
+			double t = sumTail(left, i, j);
+			double k = t - right;
+			double e1 = diffTail(t, right, k);
+			double e3 = j + k;
+			double e2 = sumTail(j, k, e3);
+			// the components do not overlap, so the largest nonzero one decides the sign
+			double top = e3 != 0 ? e3 : e2 != 0 ? e2 : e1 != 0 ? e1 : e0;
+			if (!Double.isNaN(top) && !Double.isInfinite(top)) {
+				return top > 0 ? 1 : top < 0 ? -1 : 0;
+			}
+		}
+		if (!isFinite(x0) || !isFinite(y0) || !isFinite(x1) || !isFinite(y1) || !isFinite(x2) || !isFinite(y2)) {
+			// BigDecimal cannot hold infinities; fall back to the floating point sign
+			return (int) Math.signum((x2 - x0) * (y1 - y0) - (x1 - x0) * (y2 - y0));
+		}
+		BigDecimal ox = new BigDecimal(x0), oy = new BigDecimal(y0);
+		BigDecimal left = new BigDecimal(x2).subtract(ox).multiply(new BigDecimal(y1).subtract(oy));
+		BigDecimal right = new BigDecimal(x1).subtract(ox).multiply(new BigDecimal(y2).subtract(oy));
+		return left.compareTo(right);
+	}
+	
+	/**
+	 * Returns the rounding error of x = a + b, so that a + b = x + error exactly.
+	 */
+	private static double sumTail(double a, double b, double x) {
+		double bVirtual = x - a;
+		double aVirtual = x - bVirtual;
+		return (a - aVirtual) + (b - bVirtual);
+	}
+	
+	/**
+	 * Returns the rounding error of x = a - b, so that a - b = x + error exactly.
+	 */
+	private static double diffTail(double a, double b, double x) {
+		double bVirtual = a - x;
+		double aVirtual = x + bVirtual;
+		return (a - aVirtual) + (bVirtual - b);
+	}
+	
+	/**
+	 * Returns the rounding error of x = a * b, so that a * b = x + error exactly (Dekker).
+	 */
+	private static double productTail(double a, double b, double x) {
+		double c = SPLITTER * a;
+		double aHigh = c - (c - a), aLow = a - aHigh;
+		c = SPLITTER * b;
+		double bHigh = c - (c - b), bLow = b - bHigh;
+		double error = x - aHigh * bHigh;
+		error -= aLow * bHigh;
+		error -= aHigh * bLow;
+		return aLow * bLow - error;
+	}
+	
+	private static boolean isFinite(double d) {
+		return !Double.isInfinite(d) && !Double.isNaN(d);
+	}
+}
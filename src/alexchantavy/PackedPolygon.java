@@ -0,0 +1,584 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.util.Comparator;
+
+/**
+ * <p>A polygon stored as two parallel arrays of coordinates, with vertex i at 
+ * (<code>xs[i]</code>, <code>ys[i]</code>).  Vertices are listed in clockwise order, like the 
+ * vertex arrays used everywhere else, and the boundary is the edges (i, i+1 mod n).</p>
+ * 
+ * <p>The static kernels work on vertex indices and compute the same values as the methods of
+ * {@link Vertex} and {@link Chord} they are named after, but they allocate nothing and return
+ * primitives, so they can be called in the inner loops of the diagonal generator and the 
+ * search engines.  Two vertices are taken to be the same point only if their indices are equal; 
+ * polygons read by {@link Polygon} never contain duplicate points.</p>
+ * 
+ * <p>Polygon files usually hold integer coordinates.  When every coordinate is a whole number 
+ * smaller than {@link #INTEGRAL_LIMIT} in magnitude the polygon also keeps them as 
+ * <code>long</code>s, and the instance methods switch to the <code>long</code> kernels: cross 
+ * products and squared lengths then fit in a <code>long</code>, so they are exact without the
+ * error filter of {@link Orientation}.  Any other polygon uses the <code>double</code> kernels.</p>
+ * 
+ * <p>The neighbors of each vertex and the turn the boundary makes there are worked out once, 
+ * when the polygon is created, so {@link #inCone(int, int)} does not repeat the convex or 
+ * reflex test for every chord from the same vertex.  The same pass tells whether the whole 
+ * polygon is convex.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class PackedPolygon {
+	/** Coordinates must be smaller than this in magnitude to use the long kernels. */
+	public static final long INTEGRAL_LIMIT = 1L << 30; // differences < 2^31, products < 2^62
+	
+	private final int n;
+	private final double[] xs;
+	private final double[] ys;
+	private final long[] lxs; // null unless every coordinate is integral
+	private final long[] lys;
+	private final int[] prev;   // the vertex before each vertex, i-1 mod n
+	private final int[] next;   // the vertex after each vertex, i+1 mod n
+	private final byte[] turns; // sign of the turn at each vertex, 1 for convex, -1 for reflex
+	private final boolean convex;
+	
+	/**
+	 * Copies the coordinates of the given vertices.
+	 * @param vertices The vertices of the polygon in clockwise order
+	 */
+	public PackedPolygon(Vertex[] vertices) {
+		this.n = vertices.length;
+		this.xs = new double[n];
+		this.ys = new double[n];
+		for (int i = 0; i < n; i++) {
+			xs[i] = vertices[i].xaxis;
+			ys[i] = vertices[i].yaxis;
+		}
+		this.lxs = integral(xs, ys) ? toLongs(xs) : null;
+		this.lys = lxs != null ? toLongs(ys) : null;
+		this.prev = new int[n];
+		this.next = new int[n];
+		this.turns = new byte[n];
+		this.convex = classify();
+	}
+	
+	/**
+	 * Wraps the given coordinate arrays without copying them.
+	 * @param xs The x coordinates of the vertices in clockwise order
+	 * @param ys The y coordinates, of the same length
+	 */
+	public PackedPolygon(double[] xs, double[] ys) {
+		if (xs.length != ys.length) {
+			throw new IllegalArgumentException("coordinate arrays differ in length");
+		}
+		this.n = xs.length;
+		this.xs = xs;
+		this.ys = ys;
+		this.lxs = integral(xs, ys) ? toLongs(xs) : null;
+		this.lys = lxs != null ? toLongs(ys) : null;
+		this.prev = new int[n];
+		this.next = new int[n];
+		this.turns = new byte[n];
+		this.convex = classify();
+	}
+	
+	/**
+	 * Determines whether every coordinate is a whole number within {@link #INTEGRAL_LIMIT}.
+	 */
+	private static boolean integral(double[] xs, double[] ys) {
+		for (int i = 0; i < xs.length; i++) {
+			if (!(Math.abs(xs[i]) < INTEGRAL_LIMIT && Math.abs(ys[i]) < INTEGRAL_LIMIT) ||
+					xs[i] != Math.rint(xs[i]) || ys[i] != Math.rint(ys[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static long[] toLongs(double[] values) {
+		long[] result = new long[values.length];
+		for (int i = 0; i < values.length; i++) {
+			result[i] = (long) values[i];
+		}
+		return result;
+	}
+	
+	/**
+	 * Fills in the neighbors and the turn of every vertex, and determines whether the polygon is
+	 * convex: it turns right or goes straight on at every vertex, never doubles back, and goes 
+	 * around only once, which it does if its edges change from heading east to heading west 
+	 * (or back) only twice.
+	 * @return Whether the polygon is convex
+	 */
+	private boolean classify() {
+		boolean right = false; // some vertex is a right turn
+		boolean forward = true; // no straight vertex doubles back
+		for (int i = 0; i < n; i++) {
+			prev[i] = i == 0 ? n - 1 : i - 1;
+			next[i] = i + 1 == n ? 0 : i + 1;
+		}
+		for (int i = 0; i < n; i++) {
+			turns[i] = (byte) turn(prev[i], i, next[i]);
+			right |= turns[i] > 0;
+			if (turns[i] == 0) {
+				double dot = (xs[i] - xs[prev[i]]) * (xs[next[i]] - xs[i]) + 
+						(ys[i] - ys[prev[i]]) * (ys[next[i]] - ys[i]);
+				forward &= dot > 0;
+			}
+		}
+		int changes = 0, first = 0, heading = 0; // heading is the sign of dx of the last edge
+		for (int i = 0; i < n; i++) {
+			double dx = xs[next[i]] - xs[i];
+			int sign = dx > 0 ? 1 : dx < 0 ? -1 : 0;
+			if (sign == 0) {
+				continue; // vertical edges keep the heading
+			}
+			if (heading == 0) {
+				first = sign;
+			}
+			else if (sign != heading) {
+				changes++;
+			}
+			heading = sign;
+		}
+		if (heading != first) {
+			changes++; // around the cycle to the first edge
+		}
+		boolean convex = n >= 3 && right && forward && changes <= 2;
+		for (int i = 0; i < n && convex; i++) {
+			convex = turns[i] >= 0;
+		}
+		return convex;
+	}
+	
+	/**
+	 * Determines whether every coordinate is finite.  The sweeps of {@link SimplicitySweep} and
+	 * {@link MonotoneTriangulator} need the order of {@link #sweepOrder()} to be total, which 
+	 * NaN breaks.
+	 * @return false if some coordinate is NaN or infinite
+	 */
+	public boolean isFinite() {
+		for (int i = 0; i < n; i++) {
+			if (Double.isNaN(xs[i] - xs[i]) || Double.isNaN(ys[i] - ys[i])) {
+				return false; // x - x is NaN exactly when x is NaN or infinite
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @return true if the polygon uses the exact <code>long</code> kernels
+	 */
+	public boolean isIntegral() {
+		return lxs != null;
+	}
+	
+	/**
+	 * Determines whether the polygon is convex and in clockwise order.  Straight angles are 
+	 * allowed; a polygon whose vertices are all on one line is not convex.
+	 * @return true if every vertex is convex and the boundary goes around once
+	 */
+	public boolean isConvex() {
+		return convex;
+	}
+	
+	/**
+	 * Determines whether the boundary turns right or goes straight on at vertex i, which is how
+	 * {@link #inCone(int, int)} and {@link Chord#inCone(Chord, Vertex[])} tell a convex vertex.
+	 * @param i The vertex
+	 * @return true if vertex i is convex, false if it is reflex
+	 */
+	public boolean isConvex(int i) {
+		return turns[i] >= 0;
+	}
+	
+	/**
+	 * Determines whether vertex i lies on the line through its two neighbors.
+	 * @param i The vertex
+	 * @return true if the boundary goes straight on, or doubles back, at vertex i
+	 */
+	public boolean isStraight(int i) {
+		return turns[i] == 0;
+	}
+	
+	/**
+	 * @param i A vertex
+	 * @return The vertex before it, i-1 mod n
+	 */
+	public int prev(int i) {
+		return prev[i];
+	}
+	
+	/**
+	 * @param i A vertex
+	 * @return The vertex after it, i+1 mod n
+	 */
+	public int next(int i) {
+		return next[i];
+	}
+	
+	/**
+	 * @return The number of vertices
+	 */
+	public int size() {
+		return n;
+	}
+	
+	/**
+	 * @param i A vertex id
+	 * @return The x coordinate of vertex i
+	 */
+	public double x(int i) {
+		return xs[i];
+	}
+	
+	/**
+	 * @param i A vertex id
+	 * @return The y coordinate of vertex i
+	 */
+	public double y(int i) {
+		return ys[i];
+	}
+	
+	/**
+	 * Creates a vertex object for every vertex, with its index as its id.
+	 * @return The vertices of the polygon
+	 */
+	public Vertex[] toVertices() {
+		Vertex[] vertices = new Vertex[n];
+		for (int i = 0; i < n; i++) {
+			vertices[i] = new Vertex(xs[i], ys[i], i);
+		}
+		return vertices;
+	}
+	
+	/**
+	 * Determines if vertex a comes before vertex b in a sweep from top to bottom: it is higher, 
+	 * or as high and further left.
+	 * @param a The first vertex
+	 * @param b The second vertex
+	 * @return true if a is above b
+	 */
+	public boolean above(int a, int b) {
+		return above(xs, ys, a, b);
+	}
+	
+	private static boolean above(double[] xs, double[] ys, int a, int b) {
+		return ys[a] > ys[b] || (ys[a] == ys[b] && xs[a] < xs[b]);
+	}
+	
+	/**
+	 * Sorts the vertices in the order a sweep line meets them going down, see 
+	 * {@link #above(int, int)}.  Vertices at the same point stay in index order.
+	 * @return The vertex ids, highest first
+	 */
+	public int[] sweepOrder() {
+		return sweepOrder(xs, ys);
+	}
+	
+	/**
+	 * Sorts the points of the given coordinate arrays in sweep order, see {@link #above(int, int)}.
+	 * @param xs The x coordinates
+	 * @param ys The y coordinates
+	 * @return The indices of the points, highest first
+	 */
+	public static int[] sweepOrder(double[] xs, double[] ys) {
+		int n = xs.length;
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		mergeSort(xs, ys, order, new int[n], 0, n);
+		return order;
+	}
+	
+	/**
+	 * Merge sorts a[lo..hi) in sweep order, using tmp as scratch space.
+	 */
+	private static void mergeSort(double[] xs, double[] ys, int[] a, int[] tmp, int lo, int hi) {
+		if (hi - lo < 2) {
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		mergeSort(xs, ys, a, tmp, lo, mid);
+		mergeSort(xs, ys, a, tmp, mid, hi);
+		System.arraycopy(a, lo, tmp, lo, hi - lo);
+		int i = lo, j = mid;
+		for (int k = lo; k < hi; k++) {
+			if (j >= hi || (i < mid && !above(xs, ys, tmp[j], tmp[i]))) {
+				a[k] = tmp[i++];
+			}
+			else {
+				a[k] = tmp[j++];
+			}
+		}
+	}
+	
+	/**
+	 * Same as {@link Vertex#direction(Vertex, Vertex, Vertex)} for vertices i, j and k.
+	 * @param xs The x coordinates
+	 * @param ys The y coordinates
+	 * @param i The first point
+	 * @param j The anchor point
+	 * @param k The last point
+	 * @return positive if k is right, negative if k is left, zero if collinear
+	 */
+	public static double direction(double[] xs, double[] ys, int i, int j, int k) {
+		return Orientation.direction(xs[i], ys[i], xs[j], ys[j], xs[k], ys[k]);
+	}
+	
+	/**
+	 * Same as {@link #direction(double[], double[], int, int, int)} for integer coordinates 
+	 * smaller than {@link #INTEGRAL_LIMIT}, computed exactly.
+	 * @param xs The x coordinates
+	 * @param ys The y coordinates
+	 * @param i The first point
+	 * @param j The anchor point
+	 * @param k The last point
+	 * @return positive if k is right, negative if k is left, zero if collinear
+	 */
+	public static long direction(long[] xs, long[] ys, int i, int j, int k) {
+		return (xs[k] - xs[i]) * (ys[j] - ys[i]) - (xs[j] - xs[i]) * (ys[k] - ys[i]);
+	}
+	
+	/**
+	 * Same as {@link #onSegment(double[], double[], int, int, int)} for integer coordinates.
+	 * @param xs The x coordinates
+	 * @param ys The y coordinates
+	 * @param i First endpoint
+	 * @param j Second endpoint
+	 * @param k Test point
+	 * @return True if k is between i and j
+	 */
+	public static boolean onSegment(long[] xs, long[] ys, int i, int j, int k) {
+		return Math.min(xs[i], xs[j]) <= xs[k] && xs[k] <= Math.max(xs[i], xs[j]) &&
+			   Math.min(ys[i], ys[j]) <= ys[k] && ys[k] <= Math.max(ys[i], ys[j]);
+	}
+	
+	/**
+	 * Squared distance between vertices i and j with integer coordinates smaller than 
+	 * {@link #INTEGRAL_LIMIT}, computed exactly.
+	 * @param xs The x coordinates
+	 * @param ys The y coordinates
+	 * @param i The first vertex
+	 * @param j The second vertex
+	 * @return The squared length of the segment
+	 */
+	public static long squaredLength(long[] xs, long[] ys, int i, int j) {
+		long dx = xs[j] - xs[i];
+		long dy = ys[j] - ys[i];
+		return dx * dx + dy * dy;
+	}
+	
+	/**
+	 * Returns the sign of the turn at j, with the kernel this polygon uses.
+	 * @return 1 if k is right of ij, -1 if left, 0 if collinear
+	 */
+	int turn(int i, int j, int k) {
+		if (lxs != null) {
+			return Long.signum(direction(lxs, lys, i, j, k));
+		}
+		double d = direction(xs, ys, i, j, k);
+		return d > 0 ? 1 : d < 0 ? -1 : 0;
+	}
+	
+	/**
+	 * Determines whether vertex k lies in the bounding box of the segment from i to j, with the
+	 * kernel this polygon uses.
+	 */
+	private boolean between(int i, int j, int k) {
+		return lxs != null ? onSegment(lxs, lys, i, j, k) : onSegment(xs, ys, i, j, k);
+	}
+	
+	/**
+	 * Same as {@link Vertex#onSegment(Vertex, Vertex, Vertex)}: whether vertex k lies in the 
+	 * bounding box of the segment from i to j.
+	 * @param xs The x coordinates
+	 * @param ys The y coordinates
+	 * @param i First endpoint
+	 * @param j Second endpoint
+	 * @param k Test point
+	 * @return True if k is between i and j
+	 */
+	public static boolean onSegment(double[] xs, double[] ys, int i, int j, int k) {
+		return Math.min(xs[i], xs[j]) <= xs[k] && xs[k] <= Math.max(xs[i], xs[j]) &&
+			   Math.min(ys[i], ys[j]) <= ys[k] && ys[k] <= Math.max(ys[i], ys[j]);
+	}
+	
+	/**
+	 * Same as {@link Chord#intersects(Chord, Chord)} for the segments (a, b) and (c, d): equal 
+	 * segments intersect, segments sharing one endpoint do not, and otherwise Cormen's test is used.
+	 * @param xs The x coordinates
+	 * @param ys The y coordinates
+	 * @param a First endpoint of the first segment
+	 * @param b Second endpoint of the first segment
+	 * @param c First endpoint of the second segment
+	 * @param d Second endpoint of the second segment
+	 * @return Whether the two segments intersect
+	 */
+	public static boolean intersects(double[] xs, double[] ys, int a, int b, int c, int d) {
+		if ((a == c && b == d) || (a == d && b == c)) {
+			return true;
+		}
+		if (a == c || a == d || b == c || b == d) {
+			return false;
+		}
+		double d1 = direction(xs, ys, c, d, a);
+		double d2 = direction(xs, ys, c, d, b);
+		double d3 = direction(xs, ys, a, b, c);
+		double d4 = direction(xs, ys, a, b, d);
+		if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) &&
+				((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0))) {
+			return true;
+		}
+		return (d1 == 0 && onSegment(xs, ys, c, d, a)) ||
+			   (d2 == 0 && onSegment(xs, ys, c, d, b)) ||
+			   (d3 == 0 && onSegment(xs, ys, a, b, c)) ||
+			   (d4 == 0 && onSegment(xs, ys, a, b, d));
+	}
+	
+	/**
+	 * Same as {@link Chord#intersects(Chord, Chord)} for two segments between vertices of this polygon.
+	 * @return Whether (a, b) and (c, d) intersect
+	 */
+	public boolean intersects(int a, int b, int c, int d) {
+		if ((a == c && b == d) || (a == d && b == c)) {
+			return true;
+		}
+		if (a == c || a == d || b == c || b == d) {
+			return false;
+		}
+		int d1 = turn(c, d, a);
+		int d2 = turn(c, d, b);
+		int d3 = turn(a, b, c);
+		int d4 = turn(a, b, d);
+		if (d1 * d2 < 0 && d3 * d4 < 0) {
+			return true;
+		}
+		return (d1 == 0 && between(c, d, a)) ||
+			   (d2 == 0 && between(c, d, b)) ||
+			   (d3 == 0 && between(a, b, c)) ||
+			   (d4 == 0 && between(a, b, d));
+	}
+	
+	/**
+	 * Same as {@link Chord#inCone(Chord, Vertex[])}: whether the chord from a to b is strictly 
+	 * internal to the polygon in the neighborhood of a.
+	 * @param a The vertex the cone is at
+	 * @param b The other end of the chord
+	 * @return True if (a, b) starts into the interior of the polygon
+	 */
+	public boolean inCone(int a, int b) {
+		if (turns[a] >= 0) { // convex vertex
+			return turn(a, b, prev[a]) > 0 && turn(b, a, next[a]) > 0;
+		}
+		else { // reflex vertex
+			return !(turn(a, b, next[a]) >= 0 && turn(b, a, prev[a]) >= 0);
+		}
+	}
+	
+	/**
+	 * Same as {@link Chord#diagonalie(Chord, Vertex[], java.util.ArrayList)}: whether the chord 
+	 * from a to b crosses no boundary edge that is not incident to a or b.
+	 * @param a The first vertex
+	 * @param b The second vertex
+	 * @return True if (a, b) is entirely inside or entirely outside of the polygon
+	 */
+	public boolean diagonalie(int a, int b) {
+		for (int e = 0; e < n; e++) {
+			int f = e + 1 == n ? 0 : e + 1;
+			if (e != a && e != b && f != a && f != b && intersects(a, b, e, f)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Same as {@link Chord#diagonal(Chord, Vertex[], java.util.ArrayList)}, tried from both ends:
+	 * whether the vertices a and b see each other through the interior of the polygon.
+	 * @param a The first vertex
+	 * @param b The second vertex
+	 * @return True if (a, b) is a diagonal
+	 */
+	public boolean isDiagonal(int a, int b) {
+		return (inCone(a, b) || inCone(b, a)) && diagonalie(a, b);
+	}
+	
+	/**
+	 * Same as the length of a {@link Chord} from vertex a to vertex b.
+	 * @param a The first vertex
+	 * @param b The second vertex
+	 * @return The distance between the two vertices
+	 */
+	public double length(int a, int b) {
+		double dx = xs[b] - xs[a];
+		double dy = ys[b] - ys[a];
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+	
+	/**
+	 * Returns a key that orders segments between vertices of this polygon by length: the 
+	 * squared length itself with integer coordinates, which is exact, and otherwise the bits of
+	 * the squared length as a double, which sort the same way because it is never negative.  
+	 * No square root is taken.
+	 * @param a The first vertex
+	 * @param b The second vertex
+	 * @return A key that is not negative, and larger for longer segments
+	 */
+	public long lengthKey(int a, int b) {
+		if (lxs != null) {
+			return squaredLength(lxs, lys, a, b);
+		}
+		double dx = xs[b] - xs[a];
+		double dy = ys[b] - ys[a];
+		return Double.doubleToLongBits(dx * dx + dy * dy);
+	}
+	
+	/**
+	 * Compares the lengths of the segments (a, b) and (c, d) by their 
+	 * {@link #lengthKey(int, int) length keys}.
+	 * @return negative if (a, b) is shorter, positive if longer, 0 if the lengths are equal
+	 */
+	public int compareLength(int a, int b, int c, int d) {
+		long first = lengthKey(a, b);
+		long second = lengthKey(c, d);
+		return first < second ? -1 : first > second ? 1 : 0;
+	}
+	
+	/**
+	 * Returns an ordering of chords between vertices of this polygon from shortest to longest, 
+	 * using {@link #compareLength(int, int, int, int)}.  The id of each vertex of a chord must 
+	 * be its index in the polygon.
+	 * @return A comparator for sorting diagonals
+	 */
+	public Comparator<Chord> lengthOrder() {
+		return new Comparator<Chord>() {
+			public int compare(Chord first, Chord second) {
+				return compareLength(first.v1.getID(), first.v2.getID(), second.v1.getID(), second.v2.getID());
+			}
+		};
+	}
+}
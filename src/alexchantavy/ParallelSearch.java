@@ -0,0 +1,315 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Runs the exhaustive search of {@link Polygon#optimalTriangulation(Vertex[], ArrayList)} on 
+ * all the cores of the machine.</p>
+ * 
+ * <p>The sequential search tries max_chord = n-4, n-3, ... one at a time, and for each one
+ * generates the combinations of n-3 chords from A[0..max_chord] that contain A[max_chord].
+ * Those are exactly the combinations whose last element is max_chord, so we enumerate the
+ * (n-4)-combinations of A[0..max_chord-1] instead; they come out in the same order.  
+ * Each combination has a rank in that order (see {@link LongCombinationGenerator#rank(int[])}), 
+ * so the ranks of one max_chord are split into ranges that are searched in parallel, and a
+ * window of consecutive max_chord indices is searched at the same time.</p>
+ * 
+ * <p>The sequential search returns the first noncrossing combination of the smallest feasible
+ * max_chord.  To return exactly the same answer, every task keeps the smallest feasible index
+ * and, for each index, the smallest feasible rank found so far.  A task gives up as soon as
+ * it can no longer beat them, which cancels the work on larger indices once a smaller one 
+ * has succeeded.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class ParallelSearch {
+	private static final long GRAIN = 1 << 14; // ranges smaller than this are not split
+	private static final int CHECK_INTERVAL = 1024; // combinations between cancellation checks
+	
+	private final ForkJoinPool pool;
+	private final AtomicInteger started = new AtomicInteger(); // token of the latest search
+	private final AtomicInteger cancelledThrough = new AtomicInteger(); // latest cancelled token
+	
+	/**
+	 * Creates a parallel search that runs on the common fork/join pool.
+	 */
+	public ParallelSearch() {
+		this(ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Creates a parallel search that runs on the given pool.
+	 * @param pool The pool to run tasks on
+	 */
+	public ParallelSearch(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+	
+	/**
+	 * Generates the optimal triangulation of the polygon.  Returns the same chords as 
+	 * {@link Polygon#optimalTriangulation(Vertex[], ArrayList)}.
+	 * @param vertices Array of vertices of the polygon
+	 * @param boundary The set of line segments that constitute the boundary of the polygon
+	 * @return The optimal triangulation of the polygon, null if cancelled
+	 */
+	public ArrayList<Chord> optimalTriangulation(Vertex[] vertices, ArrayList<Chord> boundary) {
+		PackedPolygon polygon = new PackedPolygon(vertices);
+		ArrayList<Chord> allDiagonals = new DiagonalMatrix(polygon).toSortedChordList(polygon, vertices);
+		return search(vertices.length, allDiagonals, new CrossingMatrix(polygon, allDiagonals));
+	}
+	
+	/**
+	 * Finds the triangulation with the smallest max_chord index, searching a window of
+	 * indices at a time.
+	 * @precondition allDiagonals is SORTED, and is an ArrayList of all the diagonals of a given polygon 
+	 * @param n The number of vertices of the polygon
+	 * @param allDiagonals Sorted ArrayList containing all diagonals of the polygon.
+	 * @param crossings The crossing table of <code>allDiagonals</code>
+	 * @return The optimal triangulation of the polygon, null if there is none or the search was cancelled
+	 */
+	public ArrayList<Chord> search(int n, ArrayList<Chord> allDiagonals, CrossingMatrix crossings) {
+		if (n <= 3) {
+			return new ArrayList<Chord>();
+		}
+		int token = started.incrementAndGet();
+		int window = Math.max(1, pool.getParallelism());
+		for (int start = n-3-1; start < allDiagonals.size() && !cancelled(token); start += window) {
+			int end = Math.min(start + window, allDiagonals.size());
+			Window w = new Window(n, start, end, allDiagonals, crossings, token);
+			pool.invoke(new IndexTask(w));
+			int best = w.bestIndex.get();
+			if (best < end && !cancelled(token)) {
+				return w.triangulation(best);
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Stops the searches running on this instance.  They return null.  Searches started 
+	 * afterwards run normally.
+	 */
+	public void cancel() {
+		int latest = started.get();
+		int current = cancelledThrough.get();
+		while (latest > current && !cancelledThrough.compareAndSet(current, latest)) {
+			current = cancelledThrough.get();
+		}
+	}
+	
+	/**
+	 * Determines whether the search holding the given token has been cancelled.
+	 */
+	private boolean cancelled(int token) {
+		return token <= cancelledThrough.get();
+	}
+	
+	/**
+	 * Shared state of the search of max_chord indices [start, end).
+	 */
+	private class Window {
+		final int r; // number of chords chosen besides max_chord
+		final int start;
+		final int end;
+		final int token;
+		final ArrayList<Chord> allDiagonals;
+		final CrossingMatrix crossings;
+		final AtomicInteger bestIndex;
+		final AtomicLong[] bestRank;
+		final ArrayList<ArrayList<Chord>> fallback = new ArrayList<ArrayList<Chord>>();
+		
+		Window(int n, int start, int end, ArrayList<Chord> allDiagonals, CrossingMatrix crossings, int token) {
+			this.r = n - 4;
+			this.start = start;
+			this.end = end;
+			this.token = token;
+			this.allDiagonals = allDiagonals;
+			this.crossings = crossings;
+			this.bestIndex = new AtomicInteger(end);
+			this.bestRank = new AtomicLong[end - start];
+			for (int i = 0; i < bestRank.length; i++) {
+				bestRank[i] = new AtomicLong(Long.MAX_VALUE);
+				fallback.add(null);
+			}
+		}
+		
+		/**
+		 * Records that the combination with the given rank is feasible for max_chord i.
+		 */
+		void found(int i, long rank) {
+			AtomicLong best = bestRank[i - start];
+			long current = best.get();
+			while (rank < current && !best.compareAndSet(current, rank)) {
+				current = best.get();
+			}
+			int index = bestIndex.get();
+			while (i < index && !bestIndex.compareAndSet(index, i)) {
+				index = bestIndex.get();
+			}
+		}
+		
+		/**
+		 * Determines whether a task for max_chord i can still improve on what has been found.
+		 */
+		boolean useful(int i, long rank) {
+			return !cancelled(token) && i <= bestIndex.get() && rank < bestRank[i - start].get();
+		}
+		
+		/**
+		 * Builds the triangulation found for max_chord i, in the order the sequential search returns it.
+		 */
+		ArrayList<Chord> triangulation(int i) {
+			synchronized (fallback) {
+				if (fallback.get(i - start) != null) {
+					return fallback.get(i - start);
+				}
+			}
+			int[] indices = new LongCombinationGenerator(i, r).unrank(bestRank[i - start].get());
+			ArrayList<Chord> triangulation = new ArrayList<Chord>();
+			for (int index : indices) {
+				triangulation.add(allDiagonals.get(index));
+			}
+			triangulation.add(allDiagonals.get(i));
+			return triangulation;
+		}
+	}
+	
+	/**
+	 * Forks one task for every max_chord index of a window.
+	 */
+	@SuppressWarnings("serial")
+	private class IndexTask extends RecursiveAction {
+		private final Window w;
+		
+		IndexTask(Window w) {
+			this.w = w;
+		}
+		
+		@Override
+		protected void compute() {
+			ArrayList<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+			for (int i = w.start; i < w.end; i++) {
+				if (i < w.r) {
+					continue; // fewer than n-4 shorter chords to choose from
+				}
+				if (LongCombinationGenerator.fits(i, w.r)) {
+					tasks.add(new RangeTask(w, i, 0, new LongCombinationGenerator(i, w.r).getTotal()));
+				}
+				else {
+					tasks.add(new FallbackTask(w, i));
+				}
+			}
+			invokeAll(tasks);
+		}
+	}
+	
+	/**
+	 * Searches the combinations of one max_chord index whose ranks are in [from, to).
+	 */
+	@SuppressWarnings("serial")
+	private class RangeTask extends RecursiveAction {
+		private final Window w;
+		private final int i;
+		private final long from;
+		private final long to;
+		
+		RangeTask(Window w, int i, long from, long to) {
+			this.w = w;
+			this.i = i;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if (!w.useful(i, from)) {
+				return;
+			}
+			if (to - from > GRAIN) {
+				long mid = from + (to - from) / 2;
+				invokeAll(new RangeTask(w, i, from, mid), new RangeTask(w, i, mid, to));
+				return;
+			}
+			LongCombinationGenerator x = new LongCombinationGenerator(i, w.r);
+			x.setRange(from, to);
+			long[] chosen = w.crossings.newSet();
+			long rank = from;
+			while (x.hasMore()) {
+				if ((rank - from) % CHECK_INTERVAL == 0 && !w.useful(i, rank)) {
+					return;
+				}
+				int[] indices = x.getNext();
+				Arrays.fill(chosen, 0);
+				CrossingMatrix.add(chosen, i);
+				int k = 0;
+				while (k < indices.length && !w.crossings.crossesAny(indices[k], chosen)) {
+					CrossingMatrix.add(chosen, indices[k]);
+					k++;
+				}
+				if (k == indices.length) {
+					w.found(i, rank); // ranks increase, so this is the best in the range
+					return;
+				}
+				rank++;
+			}
+		}
+	}
+	
+	/**
+	 * Searches one max_chord index whose combinations cannot be counted in a long, 
+	 * sequentially with {@link Polygon#generateTriangulation(int, int, ArrayList)}.
+	 */
+	@SuppressWarnings("serial")
+	private class FallbackTask extends RecursiveAction {
+		private final Window w;
+		private final int i;
+		
+		FallbackTask(Window w, int i) {
+			this.w = w;
+			this.i = i;
+		}
+		
+		@Override
+		protected void compute() {
+			if (!w.useful(i, 0)) {
+				return;
+			}
+			ArrayList<Chord> triangulation = Polygon.generateTriangulation(i, w.r + 4, w.allDiagonals, w.crossings);
+			if (triangulation != null) {
+				synchronized (w.fallback) {
+					w.fallback.set(i - w.start, triangulation);
+				}
+				w.found(i, 0);
+			}
+		}
+	}
+}
@@ -24,15 +24,9 @@
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 package alexchantavy;
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLConnection;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 
 /**
  * <p>Represents a Polygon.  Contains an array of vertices that constitute its points,
@@ -44,6 +38,10 @@ import java.util.Collections;
  * <p>Method to read in text file for polygon input taken from open source product 
  * written by Jon Lai.  Triangulation algorithm written and implemented by Alex Chantavy.
  * 
+ * <p>The static input methods keep the last polygon read for the applet.  They are 
+ * a front for {@link PolygonModel}, which keeps each polygon in its own immutable
+ * instance and should be used when several polygons are read at once.
+ * 
  * @author Alex Chantavy
  * @author Jon Lai
  */
@@ -55,117 +53,53 @@ public class Polygon {
 
 	protected double progress;
 	
-	private static Vertex[] vertices =  null;
-	private static ArrayList<Chord> boundary = null;
-	private static int num_defined_pts = 0; // used to report error 7: not all points defined.  
-	public static Vertex lastDefined; // used to report error 14: vertex out of bounds
+	private static volatile PolygonModel last = null; // the polygon read by the last call to input
+	
 	/**
 	 * Facilitates opening a URL, reading a text file, instantiating the vertex array
 	 * and boundary, and dealing with exceptions. A listing and demonstration of error
 	 * codes is found in the testing documentation
 	 * of this project.
+	 * <p>The polygon read is kept for {@link #getVertices()} and the other static accessors, 
+	 * which are shared by the whole program.  Use {@link PolygonModel#parse(String)} to read 
+	 * polygons from several threads.</p>
 	 * @see A4applet#actionPerformed(java.awt.event.ActionEvent)
 	 * @param address The URL
 	 * @return An outcome code.  Negative codes for errors, positive ones for success.
 	 * @throws IOException
 	 */
 	public static int input(String address) throws IOException{
-		Integer n = null;
-		int eof = 0; // end of file
-		if(address.length() == 0){ // no address entered
-			return -1; //error code for blank
-		}
-		else if(address.length() > MAX_URLCHARS){  //more then 1000 characters in url 
-			return -5; //error code for more than 1000 chars
-		}
-		else if(!address.endsWith(".txt")) {
-			return -11;  //error code for invalid file extension
-		}
-		address = VerifyString.verifyStrings(address);	//verify string sanitize
-		try{
-			int count = 0;
-			URL targetURL = new URL(address);  		// input String to URL
-			URLConnection connection = targetURL.openConnection();  		//connects to URL and input file
-			BufferedReader inputStream = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-			String currentLine = "";  //Used to Store input Lines
-			while (true) {
-				try {
-					currentLine = inputStream.readLine();  //2: Case 5: reads the next line of input into num breaks at \n or \r allows for both cases 
-					int num_vertices = 0;
-					if(count == 0){//first integer tells us the number of vertices
-						num_vertices = Integer.parseInt(currentLine);
-						if (num_vertices < 3) {
-							return -10; //error code for n specified less than 3
-						}
-						else if (num_vertices > MAX_N){
-							return -8; // error code for n > 100
-						}
-						vertices = new Vertex[num_vertices];
-						eof = Integer.parseInt(currentLine) +1;
-					}
-					if(count == eof) {
-						//no need to add vertices anymore, so form the boundary of the polygon
-						boundary = new ArrayList<Chord>();
-						for (int index = 0; index < vertices.length; index++) {
-							Vertex v1 = vertices[index];
-							Vertex v2 = vertices[(index + 1) % vertices.length]; //cycle
-							Chord boundary_line = new Chord(v1, v2);
-							if (Polygon.intersectsWithList(boundary_line, boundary)){
-								return -13; //error 13: polygon defined is not a simple polygon.  That is,
-								            // the line segments of its boundary intersect each other.
-							}
-							else{
-								boundary.add(boundary_line);
-							}
-						}
-						System.out.println(boundary.toString());
-						break;  //reach end of input
-					}
-					if (currentLine.contains("\t")){  //input contains a tab 
-						String []  parts= currentLine.split("\t");  //split string at tab
-						String c1 = parts[0];    			// start edge
-						String c2 = parts[1];				//end edge
-						// Create a new Vertex with the coordinates specified by the text file
-						// and with an ID number telling its clockwise order.  
-						double x_coord = Double.parseDouble(c1);
-						double y_coord = Double.parseDouble(c2);
-						Vertex toBeAdded= new Vertex(x_coord, y_coord, count-1);
-						if (Math.abs(x_coord) > MAX_X || Math.abs(y_coord) > MAX_Y) {
-							lastDefined = toBeAdded;
-							return -14; // error 14: vertex out of drawable region
-						}
-						 
-						if (verticesContain(toBeAdded)) {
-							lastDefined = toBeAdded;
-							return -12;  // error 12: duplicate points in the text file
-						}
-						else {
-							vertices[count-1] = toBeAdded;
-						}
-					}	
-					else n = Integer.parseInt(currentLine); //parse initial value n
-				}
-				catch (NullPointerException e) {
-					num_defined_pts = count-1;
-					return -7; //error that not all points are specified
-				}
-				catch(NumberFormatException g){
-					return -6; // file contains noninteger character
-				}
-				// TODO: Deal with max x coords and max y coords so that we dont draw out of bounds
-				count++;
-			}
-		}
-		catch(MalformedURLException e){
-			return -2;
+		PolygonModel model = publish(PolygonModel.parse(address));
+		if (model.isValid()) {
+			System.out.println(model.getBoundary().toString());
 		}
-		catch(FileNotFoundException g){
-			return -3;
-		}	
-  		catch(IOException f){
-			return -4; // file is denied retrieval
-		}
-		return n;  //if execution made it this far, n is positive and won't give an error code
+		return model.getCode();
+	}
+	
+	/**
+	 * Reads a polygon text file without the limits the applet needs for drawing: any number
+	 * of vertices and any coordinates are accepted, so error codes -8 and -14 are never returned.
+	 * The boundary is checked for self intersections (error -13) the same way as by {@link #input(String)}.
+	 * <p>Meant for large polygons such as GIS outlines, which are triangulated with
+	 * {@link MonotoneTriangulator} rather than drawn.</p>
+	 * @see #input(String)
+	 * @see PolygonModel#parseLarge(String)
+	 * @param address The URL
+	 * @return An outcome code.  Negative codes for errors, positive ones for success.
+	 * @throws IOException
+	 */
+	public static int inputLarge(String address) throws IOException{
+		return publish(PolygonModel.parseLarge(address)).getCode();
+	}
+	
+	/**
+	 * Makes the given model the one returned by the static accessors.
+	 * @param model The polygon just read
+	 * @return The same model
+	 */
+	private static PolygonModel publish(PolygonModel model) {
+		last = model;
+		return model;
 	}
 	
 	  /**
@@ -191,12 +125,13 @@ public class Polygon {
 	   * @return The optimal triangulation of the polygon
 	   */
 	  public static ArrayList<Chord> optimalTriangulation (Vertex [] vertices, ArrayList<Chord> boundary) {
-		  ArrayList<Chord> allDiagonals = Polygon.generateAllDiagonals(vertices, boundary);
+		  PackedPolygon polygon = new PackedPolygon(vertices);
+		  ArrayList<Chord> allDiagonals = new DiagonalMatrix(polygon).toSortedChordList(polygon, vertices);
 		  ArrayList<Chord> optimum = new ArrayList<Chord>();
-		  Collections.sort(allDiagonals); //Collections.sort uses an n*log(n) mergesort.
+		  CrossingMatrix crossings = new CrossingMatrix(polygon, allDiagonals);
 		  int n = vertices.length;
 		  for (int i = n-3-1; i<allDiagonals.size(); i++) {
-			  optimum = Polygon.generateTriangulation(i, n, allDiagonals);
+			  optimum = Polygon.generateTriangulation(i, n, allDiagonals, crossings);
 			  if (optimum != null) {
 				  i = allDiagonals.size() + 20; // 20 is just arbitrary. We just want to break out of the loop early
 			  }
@@ -206,31 +141,14 @@ public class Polygon {
 	
 	/**
 	 * Generates all the diagonals of the polygon.  Uses {@link Chord#diagonal(Chord, Vertex[], ArrayList)} to 
-	 * determine what is a diagonal.
+	 * determine what is a diagonal, testing each pair of vertices once through {@link DiagonalMatrix}.
 	 * @see Chord#diagonal(Chord, Vertex[], ArrayList)
 	 * @param vertices The array of vertices of the polygon
 	 * @param boundary The line segments that constitute the boundary of the polygon
 	 * @return An ArrayList containing all the diagonals of the polygon
 	 */
 	public static ArrayList<Chord> generateAllDiagonals(Vertex[] vertices, ArrayList<Chord> boundary) {
-		  ArrayList<Chord> allDiagonals = new ArrayList<Chord>();
-		  int n = vertices.length;
-		  for (int i = 0; i < n; i++) {
-			  for (int j = 0; j < n; j++) { //chords may not be formed from nonadjacent vertex to nonadajcent vertex
-				  if ( ! (j == ( (i+1) % n ) ||
-						 (j == ( (i-1) % n ))) 
-				     ) 
-				  {
-					  Chord toBeAdded = new Chord(i, j, vertices);
-					  if (Chord.diagonal(toBeAdded, vertices, boundary)) {
-						  if (! (Chord.contains(allDiagonals, toBeAdded))){ //prevent duplicates from being added
-							  allDiagonals.add(toBeAdded);
-						  }
-					  }
-				  }
-			  }
-		  }
-		  return allDiagonals;
+		return new DiagonalMatrix(vertices, boundary).toChordList(vertices);
 	}
 	
 	/**
@@ -248,6 +166,22 @@ public class Polygon {
 	 * @return null if not possible, the ArrayList of diagonals if possible.
 	 */
 	public static ArrayList<Chord> generateTriangulation(int max_chord, int n, ArrayList<Chord> allDiagonals){
+		return generateTriangulation(max_chord, n, allDiagonals, (ProgressListener) null);
+	}
+	
+	/**
+	 * Same as {@link #generateTriangulation(int, int, ArrayList)}, reporting every combination
+	 * tried to the given listener.
+	 * 
+	 * @precondition allDiagonals is SORTED, and is an ArrayList of all the diagonals of a given polygon 
+	 * @param max_chord Index of the chord in <code>allDiagonals</code> to test for as the max length chord
+	 * @param n The number of vertices of the polygon
+	 * @param allDiagonals Sorted ArrayList containing all diagonals of the polygon.
+	 * @param listener Receives the combinations tried, may be null
+	 * @return null if not possible, the ArrayList of diagonals if possible.
+	 */
+	public static ArrayList<Chord> generateTriangulation(int max_chord, int n, ArrayList<Chord> allDiagonals,
+			ProgressListener listener){
 		//Collections.sort(allDiagonals);
 		if (n-3 > max_chord+1) {
 			return null;
@@ -256,7 +190,9 @@ public class Polygon {
 		int[] indices = new int[n-3];
 		while (x.hasMore()) {
 			indices = x.getNext();
-			A4applet.printArrayCombination(indices);
+			if (listener != null) {
+				listener.combinationTried(indices);
+			}
 			ArrayList<Chord> triangulation = new ArrayList<Chord>();
 			if (arrayContainsNum(indices, max_chord)) {  //find a combination with max_chord as the maximum chord
 				for (int i = 0; i < indices.length; i++) {
@@ -273,6 +209,72 @@ public class Polygon {
 		return null;
 	}
 	
+	/**
+	 * Same as {@link #generateTriangulation(int, int, ArrayList)}, but looks up chord crossings
+	 * in a table built once for <code>allDiagonals</code> instead of calling 
+	 * {@link Chord#intersects(Chord, Chord)} for every combination.  Combinations are counted
+	 * with {@link LongCombinationGenerator}, which allocates nothing per combination.
+	 * 
+	 * @precondition allDiagonals is SORTED, and is an ArrayList of all the diagonals of a given polygon 
+	 * @param max_chord Index of the chord in <code>allDiagonals</code> to test for as the max length chord
+	 * @param n The number of vertices of the polygon
+	 * @param allDiagonals Sorted ArrayList containing all diagonals of the polygon.
+	 * @param crossings The crossing table of <code>allDiagonals</code>
+	 * @return null if not possible, the ArrayList of diagonals if possible.
+	 */
+	public static ArrayList<Chord> generateTriangulation(int max_chord, int n, ArrayList<Chord> allDiagonals,
+			CrossingMatrix crossings){
+		return generateTriangulation(max_chord, n, allDiagonals, crossings, null);
+	}
+	
+	/**
+	 * Same as {@link #generateTriangulation(int, int, ArrayList, CrossingMatrix)}, reporting every 
+	 * combination tried to the given listener.
+	 * 
+	 * @precondition allDiagonals is SORTED, and is an ArrayList of all the diagonals of a given polygon 
+	 * @param max_chord Index of the chord in <code>allDiagonals</code> to test for as the max length chord
+	 * @param n The number of vertices of the polygon
+	 * @param allDiagonals Sorted ArrayList containing all diagonals of the polygon.
+	 * @param crossings The crossing table of <code>allDiagonals</code>
+	 * @param listener Receives the combinations tried, may be null
+	 * @return null if not possible, the ArrayList of diagonals if possible.
+	 */
+	public static ArrayList<Chord> generateTriangulation(int max_chord, int n, ArrayList<Chord> allDiagonals,
+			CrossingMatrix crossings, ProgressListener listener){
+		if (n-3 > max_chord+1) {
+			return null;
+		}
+		if (!LongCombinationGenerator.fits(max_chord+1, n-3)) {
+			// too many combinations to count in a long
+			return generateTriangulation(max_chord, n, allDiagonals, listener);
+		}
+		LongCombinationGenerator x = new LongCombinationGenerator(max_chord+1, n-3);
+		int[] indices;
+		long[] chosen = crossings.newSet();
+		while (x.hasMore()) {
+			indices = x.getNext();
+			if (listener != null) {
+				listener.combinationTried(indices);
+			}
+			if (arrayContainsNum(indices, max_chord)) {  //find a combination with max_chord as the maximum chord
+				Arrays.fill(chosen, 0);
+				int i = 0;
+				while (i < indices.length && !crossings.crossesAny(indices[i], chosen)) {
+					CrossingMatrix.add(chosen, indices[i]);
+					i++;
+				}
+				if (i == indices.length) { // no chord crossed the ones before it
+					ArrayList<Chord> triangulation = new ArrayList<Chord>();
+					for (int index : indices) {
+						triangulation.add(allDiagonals.get(index));
+					}
+					return triangulation;
+				}
+			}
+		}
+		return null;
+	}
+	
 	/**
 	 * Determines if the given array of integers contains a given integer
 	 * @param array The array
@@ -308,41 +310,22 @@ public class Polygon {
 	}
 	  
 	/**
-	 * Returns the vertices of the polygon
-	 * @return The polygon's vertices
+	 * Returns the vertices of the polygon read by the last call to {@link #input(String)}.
+	 * @return The polygon's vertices, null if it could not be read
 	 */
 	public static Vertex[] getVertices(){
-		return vertices;
+		PolygonModel model = last;
+		return model == null ? null : model.getVertices();
 	}
 		
 	/**
 	 * Returns the ArrayList consisting of line segments that constitute
-	 * the boundary of the polygon.
-	 * @return the boundary of the polygon
+	 * the boundary of the polygon read by the last call to {@link #input(String)}.
+	 * @return the boundary of the polygon, null if it could not be read
 	 */
 	public static ArrayList<Chord> getBoundary() {
-		return boundary;
-	}
-	
-	/**
-	 * Determines if the vertex array contains a given vertex.
-	 * This is used to prevent duplicate points from being added to
-	 * the polygon.
-	 * @param coord The Vertex to test
-	 * @return Whether coord is already defined in the Vertex array
-	 */
-	private static boolean verticesContain(Vertex coord) {
-		try {
-			for (int i = 0; i < vertices.length; i++) {
-				if (coord.equals(vertices[i])) {
-					return true;
-				}
-			}
-			return false;
-		}
-		catch (NullPointerException e) {
-			return false;
-		}
+		PolygonModel model = last;
+		return model == null ? null : model.getBoundary();
 	}
 		
 	/**
@@ -352,6 +335,16 @@ public class Polygon {
 	 * @return The number of points defined by the text file
 	 */
 	public static int getNumDefPts() {
-		return num_defined_pts;
-	}	
+		PolygonModel model = last;
+		return model == null ? 0 : model.getDefinedPoints();
+	}
+	
+	/**
+	 * Used for error reporting of duplicate points (error 12) and points out of bounds (error 14).
+	 * @return The vertex that could not be added, null if there is none
+	 */
+	public static Vertex getLastDefined() {
+		PolygonModel model = last;
+		return model == null ? null : model.getLastDefined();
+	}
 }
\ No newline at end of file
@@ -0,0 +1,199 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <p>Reads a binary file holding many polygons, written by {@link PolygonArchiveWriter}.  The 
+ * file is memory mapped, so opening it reads nothing but the header, and any polygon can be 
+ * reached by its index in constant time.  All reads are absolute, so one archive may be 
+ * shared by any number of threads.</p>
+ * 
+ * <p>The file is little-endian throughout:</p>
+ * <pre>
+ *   header   "POLYARCH", int version, int count, long index offset       (24 bytes)
+ *   record   int n, int 0, n doubles x, n doubles y                      (one per polygon)
+ *   index    count longs: the offset of each record
+ * </pre>
+ * <p>The coordinates of a record are the two arrays of a {@link PackedPolygon}, with the vertices 
+ * in clockwise order.  Every record starts on a multiple of 8 bytes, and no record crosses a
+ * multiple of {@link #SEGMENT_SIZE}, so that the file can be mapped in segments of that size 
+ * and each record lies within one of them.</p>
+ * 
+ * <p>{@link #xs(int)} and {@link #ys(int)} return views of the mapped coordinates without copying 
+ * them.  {@link #get(int)} copies them into the arrays of a packed polygon for the solvers.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class PolygonArchive {
+	static final byte[] MAGIC = {'P', 'O', 'L', 'Y', 'A', 'R', 'C', 'H'};
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 24;
+	static final int RECORD_HEADER_SIZE = 8;
+	static final int SEGMENT_BITS = 30;
+	/** No record crosses a multiple of this many bytes. */
+	public static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+	
+	private final File file;
+	private final ByteBuffer[] segments; // little-endian, only read with absolute gets
+	private final int count;
+	private final long indexOffset;
+	
+	/**
+	 * Opens an archive and maps it.
+	 * @param file The archive file
+	 * @throws IOException If the file cannot be read or is not an archive
+	 */
+	public PolygonArchive(File file) throws IOException {
+		this.file = file;
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = input.getChannel();
+			long size = channel.size();
+			if (size < HEADER_SIZE) {
+				throw new IOException(file + " is not a polygon archive");
+			}
+			segments = new ByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS)];
+			for (int k = 0; k < segments.length; k++) {
+				long start = (long) k << SEGMENT_BITS;
+				segments[k] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start))
+						.order(ByteOrder.LITTLE_ENDIAN);
+			}
+			for (int i = 0; i < MAGIC.length; i++) {
+				if (segments[0].get(i) != MAGIC[i]) {
+					throw new IOException(file + " is not a polygon archive");
+				}
+			}
+			if (segments[0].getInt(8) != VERSION) {
+				throw new IOException(file + " has unknown archive version " + segments[0].getInt(8));
+			}
+			count = segments[0].getInt(12);
+			indexOffset = segments[0].getLong(16);
+			if (count < 0 || indexOffset < HEADER_SIZE || indexOffset + 8L * count > size) {
+				throw new IOException(file + " is truncated");
+			}
+		}
+		finally {
+			input.close(); // the mappings stay valid
+		}
+	}
+	
+	/**
+	 * @return The number of polygons in the archive
+	 */
+	public int size() {
+		return count;
+	}
+	
+	/**
+	 * @return The archive file
+	 */
+	public File getFile() {
+		return file;
+	}
+	
+	/**
+	 * @param index The index of the polygon, from 0 to {@link #size()} - 1
+	 * @return The number of vertices of the polygon
+	 */
+	public int vertexCount(int index) {
+		long offset = offset(index);
+		return segment(offset).getInt(position(offset));
+	}
+	
+	/**
+	 * Returns the x coordinates of a polygon as a view of the mapped file, without copying them.
+	 * @param index The index of the polygon, from 0 to {@link #size()} - 1
+	 * @return A read only buffer of the n x coordinates
+	 */
+	public DoubleBuffer xs(int index) {
+		return coordinates(index, 0);
+	}
+	
+	/**
+	 * Returns the y coordinates of a polygon as a view of the mapped file, without copying them.
+	 * @param index The index of the polygon, from 0 to {@link #size()} - 1
+	 * @return A read only buffer of the n y coordinates
+	 */
+	public DoubleBuffer ys(int index) {
+		return coordinates(index, 1);
+	}
+	
+	/**
+	 * Copies a polygon out of the archive.
+	 * @param index The index of the polygon, from 0 to {@link #size()} - 1
+	 * @return The polygon
+	 */
+	public PackedPolygon get(int index) {
+		DoubleBuffer xs = xs(index);
+		DoubleBuffer ys = ys(index);
+		double[] x = new double[xs.remaining()];
+		double[] y = new double[ys.remaining()];
+		xs.get(x);
+		ys.get(y);
+		return new PackedPolygon(x, y);
+	}
+	
+	/**
+	 * @param part 0 for the x coordinates, 1 for the y coordinates
+	 */
+	private DoubleBuffer coordinates(int index, int part) {
+		long offset = offset(index);
+		ByteBuffer segment = segment(offset);
+		int position = position(offset);
+		int n = segment.getInt(position);
+		int start = position + RECORD_HEADER_SIZE + part * 8 * n;
+		ByteBuffer view = segment.duplicate(); // own position and limit, shares the mapping
+		view.limit(start + 8 * n);
+		view.position(start);
+		return view.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+	}
+	
+	/**
+	 * @return The offset of the record of a polygon, read from the index
+	 */
+	private long offset(int index) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("polygon " + index + " of " + count);
+		}
+		long entry = indexOffset + 8L * index;
+		return segment(entry).getLong(position(entry));
+	}
+	
+	private ByteBuffer segment(long offset) {
+		return segments[(int) (offset >>> SEGMENT_BITS)];
+	}
+	
+	private static int position(long offset) {
+		return (int) (offset & (SEGMENT_SIZE - 1));
+	}
+}
@@ -0,0 +1,262 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * <p>Writes polygons to a binary archive that {@link PolygonArchive} reads; the format is
+ * described there.  Records are appended as they are added and the index is written by 
+ * {@link #close()}, so polygons can be streamed into an archive of any size.</p>
+ * 
+ * <p>Run as a program, it converts polygon text files to an archive:</p>
+ * <pre>
+ * java -cp out alexchantavy.PolygonArchiveWriter -dir polygons -out shapes.pga
+ * java -cp out alexchantavy.PolygonArchiveWriter -manifest files.txt -out shapes.pga
+ * </pre>
+ * <p>Every file is read with {@link PolygonModel#parseLarge(String)}, so only simple polygons
+ * without duplicate points are archived.  A CSV line <code>index,file,code</code> is printed 
+ * for each file, with index -1 for the files that could not be read, and the exit status is
+ * 1 if there were any.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class PolygonArchiveWriter implements Closeable {
+	private final RandomAccessFile output;
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+	private long position = PolygonArchive.HEADER_SIZE; // where the next byte goes
+	private long[] offsets = new long[64];
+	private int count = 0;
+	
+	/**
+	 * Creates an empty archive, replacing the file if there is one.
+	 * @param file The archive file
+	 * @throws IOException If the file cannot be written
+	 */
+	public PolygonArchiveWriter(File file) throws IOException {
+		output = new RandomAccessFile(file, "rw");
+		output.setLength(0);
+		channel = output.getChannel();
+		channel.position(position);
+	}
+	
+	/**
+	 * Appends a polygon.
+	 * @param polygon The polygon, with its vertices in clockwise order
+	 * @return The index of the polygon in the archive
+	 * @throws IOException If the archive cannot be written
+	 */
+	public int add(PackedPolygon polygon) throws IOException {
+		int n = polygon.size();
+		long size = PolygonArchive.RECORD_HEADER_SIZE + 16L * n;
+		if (size > PolygonArchive.SEGMENT_SIZE) {
+			throw new IllegalArgumentException("polygon of " + n + " vertices is too large for an archive");
+		}
+		if ((position >>> PolygonArchive.SEGMENT_BITS) != ((position + size - 1) >>> PolygonArchive.SEGMENT_BITS)) {
+			flush();
+			position = (position + PolygonArchive.SEGMENT_SIZE) & -PolygonArchive.SEGMENT_SIZE; // next segment
+			channel.position(position);
+		}
+		if (count == offsets.length) {
+			offsets = Arrays.copyOf(offsets, 2 * count);
+		}
+		offsets[count] = position;
+		putInt(n);
+		putInt(0);
+		for (int i = 0; i < n; i++) {
+			putDouble(polygon.x(i));
+		}
+		for (int i = 0; i < n; i++) {
+			putDouble(polygon.y(i));
+		}
+		return count++;
+	}
+	
+	/**
+	 * Writes the index and the header, and closes the file.
+	 * @throws IOException If the archive cannot be written
+	 */
+	public void close() throws IOException {
+		try {
+			long indexOffset = position;
+			for (int i = 0; i < count; i++) {
+				putLong(offsets[i]);
+			}
+			flush();
+			buffer.put(PolygonArchive.MAGIC);
+			buffer.putInt(PolygonArchive.VERSION);
+			buffer.putInt(count);
+			buffer.putLong(indexOffset);
+			buffer.flip();
+			channel.write(buffer, 0);
+			buffer.clear();
+		}
+		finally {
+			output.close();
+		}
+	}
+	
+	private void putInt(int value) throws IOException {
+		if (buffer.remaining() < 4) {
+			flush();
+		}
+		buffer.putInt(value);
+		position += 4;
+	}
+	
+	private void putLong(long value) throws IOException {
+		if (buffer.remaining() < 8) {
+			flush();
+		}
+		buffer.putLong(value);
+		position += 8;
+	}
+	
+	private void putDouble(double value) throws IOException {
+		if (buffer.remaining() < 8) {
+			flush();
+		}
+		buffer.putDouble(value);
+		position += 8;
+	}
+	
+	/**
+	 * Writes out the buffered bytes at the position of the channel.
+	 */
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+	
+	/**
+	 * Converts polygon text files to an archive.
+	 * @param args <code>-dir</code> or <code>-manifest</code>, and <code>-out</code>, as described above
+	 * @throws IOException If the input cannot be listed or the archive cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		File directory = null, manifest = null, out = null;
+		for (int i = 0; i < args.length; i += 2) {
+			if (i + 1 == args.length) {
+				throw new IllegalArgumentException("missing value for " + args[i]);
+			}
+			if (args[i].equals("-dir")) directory = new File(args[i + 1]);
+			else if (args[i].equals("-manifest")) manifest = new File(args[i + 1]);
+			else if (args[i].equals("-out")) out = new File(args[i + 1]);
+			else throw new IllegalArgumentException("unknown option " + args[i]);
+		}
+		if ((directory == null) == (manifest == null) || out == null) {
+			throw new IllegalArgumentException("give -out and either -dir or -manifest");
+		}
+		PolygonArchiveWriter writer = new PolygonArchiveWriter(out);
+		int failures = 0;
+		System.out.println("index,file,code");
+		try {
+			if (directory != null) {
+				failures = writer.convertDirectory(directory);
+			}
+			else {
+				failures = writer.convertManifest(manifest);
+			}
+		}
+		finally {
+			writer.close();
+		}
+		System.err.println(writer.count + " polygon(s) written to " + out + ", " + failures + " file(s) skipped");
+		if (failures > 0) {
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Converts the <code>*.txt</code> files of a directory and its subdirectories, in name order.
+	 * @return The number of files that could not be read
+	 */
+	private int convertDirectory(File directory) throws IOException {
+		File[] entries = directory.listFiles();
+		if (entries == null) {
+			throw new IOException("cannot list " + directory);
+		}
+		Arrays.sort(entries);
+		int failures = 0;
+		for (File entry : entries) {
+			if (entry.isDirectory()) {
+				failures += convertDirectory(entry);
+			}
+			else if (entry.getName().endsWith(".txt") && !convert(entry.toURI().toString(), entry.getPath())) {
+				failures++;
+			}
+		}
+		return failures;
+	}
+	
+	/**
+	 * Converts the files listed in a manifest, one path or URL per line.
+	 * @return The number of files that could not be read
+	 */
+	private int convertManifest(File manifest) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(manifest));
+		int failures = 0;
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#")) {
+					continue;
+				}
+				if (!convert(BatchRunner.address(line), line)) {
+					failures++;
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+		return failures;
+	}
+	
+	/**
+	 * Reads one polygon file and appends it if it is valid.
+	 * @return Whether the polygon was appended
+	 */
+	private boolean convert(String address, String source) throws IOException {
+		PolygonModel model = PolygonModel.parseLarge(address);
+		int index = model.isValid() ? add(model.getPolygon()) : -1;
+		System.out.println(index + "," + source + "," + model.getCode());
+		return index >= 0;
+	}
+}
@@ -0,0 +1,368 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <p>Downloads many polygon files at once over HTTP, with a time limit on every download and a
+ * limit on the number of connections to each host.  {@link Polygon#input(String)} waits for as
+ * long as a slow host stalls; here a download that takes longer than the time limit is 
+ * abandoned and gives error code -4.</p>
+ * 
+ * <p>Each download runs as its own task.  On a JDK with virtual threads the tasks are virtual
+ * threads, otherwise they share a fixed pool of <code>maxConcurrent</code> threads.  A task 
+ * waits for a connection slot of its host, sends the request with {@link HttpClient}, and 
+ * hands the response body to {@link PolygonModel#read(BufferedReader, boolean)} as a stream,
+ * so the polygon is parsed while its bytes arrive.</p>
+ * 
+ * <p>Every address gets the checks of {@link Polygon#input(String)} first, including 
+ * {@link VerifyString#verifyStrings(String)}, and every result has the same outcome codes: 
+ * -3 for a missing file (HTTP 404 or 410), -4 for any other HTTP error, a refused connection
+ * or a timeout.  Addresses that are not <code>http</code> or <code>https</code> URLs are read
+ * with {@link PolygonModel#parse(String, boolean)}.</p>
+ * 
+ * <p>Running the class starts an HTTP server on the loopback interface and fetches a few
+ * polygons from it, including a missing one and one that stalls.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class PolygonFetcher implements Closeable {
+	private final HttpClient client;
+	private final long timeoutMillis;
+	private final int perHost;
+	private final boolean limits;
+	private final ExecutorService tasks;
+	private final boolean virtual;
+	private final Semaphore concurrent; // caps the tasks running at once
+	private final ConcurrentHashMap<String, Semaphore> hosts = new ConcurrentHashMap<String, Semaphore>();
+	private final ScheduledExecutorService timer;
+	
+	/**
+	 * Creates a fetcher for polygon files without the limits of the applet.
+	 * @param timeoutMillis Time allowed for each download, from connecting to the last byte
+	 * @param perHost Most connections open to one host at a time
+	 * @param maxConcurrent Most downloads running at a time
+	 */
+	public PolygonFetcher(long timeoutMillis, int perHost, int maxConcurrent) {
+		this(timeoutMillis, perHost, maxConcurrent, false);
+	}
+	
+	/**
+	 * Creates a fetcher.
+	 * @param timeoutMillis Time allowed for each download, from connecting to the last byte
+	 * @param perHost Most connections open to one host at a time
+	 * @param maxConcurrent Most downloads running at a time
+	 * @param limits Whether to apply the limits of the applet, like {@link PolygonModel#parse(String, boolean)}
+	 */
+	public PolygonFetcher(long timeoutMillis, int perHost, int maxConcurrent, boolean limits) {
+		if (timeoutMillis <= 0 || perHost < 1 || maxConcurrent < 1) {
+			throw new IllegalArgumentException("timeout and limits must be positive");
+		}
+		this.timeoutMillis = timeoutMillis;
+		this.perHost = perHost;
+		this.limits = limits;
+		this.client = HttpClient.newBuilder()
+				.connectTimeout(Duration.ofMillis(timeoutMillis))
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.build();
+		this.concurrent = new Semaphore(maxConcurrent);
+		ExecutorService threads = virtualThreads();
+		this.virtual = threads != null;
+		this.tasks = virtual ? threads : Executors.newFixedThreadPool(maxConcurrent, daemons("polygon-fetch"));
+		this.timer = Executors.newSingleThreadScheduledExecutor(daemons("polygon-fetch-timeout"));
+	}
+	
+	/**
+	 * Creates an executor that starts a virtual thread for each task, if the JDK has them.  
+	 * Looked up by reflection so that the class also runs on JDKs without them.
+	 * @return The executor, or null
+	 */
+	private static ExecutorService virtualThreads() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException e) {
+			return null; // no virtual threads, or a preview feature that is not enabled
+		}
+	}
+	
+	private static ThreadFactory daemons(final String name) {
+		return new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+	
+	/**
+	 * @return Whether downloads run on virtual threads
+	 */
+	public boolean usesVirtualThreads() {
+		return virtual;
+	}
+	
+	/**
+	 * Starts downloading and reading a polygon file.
+	 * @param address The URL
+	 * @return The polygon, or the error that stopped reading it, when it is done
+	 */
+	public Future<PolygonModel> submit(final String address) {
+		return tasks.submit(new Callable<PolygonModel>() {
+			public PolygonModel call() {
+				return fetch(address);
+			}
+		});
+	}
+	
+	/**
+	 * Downloads and reads many polygon files at once.
+	 * @param addresses The URLs
+	 * @return The polygons, or the errors that stopped reading them, in the order of the addresses
+	 * @throws InterruptedException If interrupted while waiting for the downloads
+	 */
+	public List<PolygonModel> fetchAll(List<String> addresses) throws InterruptedException {
+		ArrayList<Future<PolygonModel>> futures = new ArrayList<Future<PolygonModel>>(addresses.size());
+		for (String address : addresses) {
+			futures.add(submit(address));
+		}
+		ArrayList<PolygonModel> models = new ArrayList<PolygonModel>(addresses.size());
+		for (Future<PolygonModel> future : futures) {
+			try {
+				models.add(future.get());
+			}
+			catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause()); // fetch reports failures as codes
+			}
+		}
+		return models;
+	}
+	
+	/**
+	 * Downloads and reads one polygon file in the calling thread.
+	 * @param address The URL
+	 * @return The polygon, or the error that stopped reading it
+	 */
+	public PolygonModel fetch(String address) {
+		if(address.length() == 0){ // no address entered
+			return PolygonModel.error(-1, 0, 0, null);
+		}
+		else if(address.length() > Polygon.MAX_URLCHARS){
+			return PolygonModel.error(-5, 0, 0, null);
+		}
+		else if(!address.endsWith(".txt")) {
+			return PolygonModel.error(-11, 0, 0, null);
+		}
+		String verified = VerifyString.verifyStrings(address);
+		URI uri;
+		try {
+			uri = new URL(verified).toURI();
+		}
+		catch (MalformedURLException e) {
+			return PolygonModel.error(-2, 0, 0, null);
+		}
+		catch (URISyntaxException e) {
+			return PolygonModel.error(-2, 0, 0, null);
+		}
+		String scheme = uri.getScheme().toLowerCase();
+		if (!scheme.equals("http") && !scheme.equals("https")) {
+			return PolygonModel.parse(address, limits);
+		}
+		String host = uri.getHost() + ":" + uri.getPort();
+		Semaphore slots = hosts.get(host);
+		if (slots == null) {
+			hosts.putIfAbsent(host, new Semaphore(perHost));
+			slots = hosts.get(host);
+		}
+		try {
+			concurrent.acquire();
+			try {
+				slots.acquire();
+				try {
+					return download(uri);
+				}
+				finally {
+					slots.release();
+				}
+			}
+			finally {
+				concurrent.release();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return PolygonModel.error(-4, 0, 0, null);
+		}
+	}
+	
+	/**
+	 * Sends the request and reads the body as it arrives.  The body is closed when the time
+	 * limit runs out, which makes the reader fail.
+	 */
+	private PolygonModel download(URI uri) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		try {
+			HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofMillis(timeoutMillis)).GET().build();
+			HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+			final InputStream body = response.body();
+			try {
+				int status = response.statusCode();
+				if (status == 404 || status == 410) {
+					return PolygonModel.error(-3, 0, 0, null);
+				}
+				else if (status >= 400) {
+					return PolygonModel.error(-4, 0, 0, null);
+				}
+				ScheduledFuture<?> expiry = timer.schedule(new Runnable() {
+					public void run() {
+						try {
+							body.close();
+						}
+						catch (IOException e) {
+							// the reader fails either way
+						}
+					}
+				}, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+				try {
+					return PolygonModel.read(new BufferedReader(new InputStreamReader(body)), limits);
+				}
+				finally {
+					expiry.cancel(false);
+				}
+			}
+			finally {
+				body.close();
+			}
+		}
+		catch (IOException e) {
+			return PolygonModel.error(-4, 0, 0, null); // refused, timed out or cut off
+		}
+		catch (IllegalArgumentException e) {
+			return PolygonModel.error(-2, 0, 0, null); // no host, or a port out of range
+		}
+	}
+	
+	/**
+	 * Stops the threads of the fetcher.  Downloads that have started are finished first.
+	 */
+	public void close() {
+		tasks.shutdown();
+		timer.shutdownNow();
+	}
+	
+	/**
+	 * Serves a few polygons from a local HTTP server and fetches them at once.
+	 * @param args Not used
+	 * @throws Exception If the server cannot be started
+	 */
+	public static void main(String[] args) throws Exception {
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				String path = exchange.getRequestURI().getPath();
+				byte[] body = ("4\n0\t0\n0\t1\n1\t1\n1\t0\n").getBytes("US-ASCII");
+				if (path.equals("/missing.txt")) {
+					exchange.sendResponseHeaders(404, -1);
+				}
+				else if (path.equals("/stalled.txt")) {
+					exchange.sendResponseHeaders(200, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body, 0, 6); // the first vertex, then nothing
+					out.flush();
+					try {
+						Thread.sleep(5000);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				else {
+					exchange.sendResponseHeaders(200, body.length);
+					exchange.getResponseBody().write(body);
+				}
+				exchange.close();
+			}
+		});
+		server.setExecutor(Executors.newCachedThreadPool(daemons("polygon-server")));
+		server.start();
+		String base = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+		List<String> addresses = new ArrayList<String>();
+		for (int i = 0; i < 8; i++) {
+			addresses.add(base + "square" + i + ".txt");
+		}
+		addresses.add(base + "missing.txt");
+		addresses.add(base + "stalled.txt");
+		addresses.add(base + "notext.csv");
+		addresses.add("http:///nohost.txt");
+		addresses.add("http://127.0.0.1:99999/badport.txt");
+		PolygonFetcher fetcher = new PolygonFetcher(1000, 2, 16);
+		try {
+			long start = System.nanoTime();
+			List<PolygonModel> models = fetcher.fetchAll(addresses);
+			for (int i = 0; i < models.size(); i++) {
+				System.out.println(addresses.get(i) + " -> " + models.get(i).getCode());
+			}
+			System.out.println(models.size() + " fetched in " + (System.nanoTime() - start) / 1000000 + " ms" +
+					(fetcher.usesVirtualThreads() ? " on virtual threads" : " on a thread pool"));
+		}
+		finally {
+			fetcher.close();
+			server.stop(0);
+		}
+	}
+}
@@ -0,0 +1,372 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * <p>An immutable polygon read from a text file, together with the outcome of reading it.
+ * Unlike the static methods of {@link Polygon}, every model keeps its own vertices, boundary
+ * and diagnostics, so any number of threads may read and triangulate different polygons at 
+ * the same time, and a model may be shared between threads without locking.</p>
+ * 
+ * <p>{@link #getCode()} is the outcome code that {@link Polygon#input(String)} returns: the 
+ * number of vertices if the polygon is valid, otherwise one of the negative error codes listed
+ * in {@link A4applet}.  The vertices and boundary are only available for a valid polygon;
+ * the diagnostics ({@link #getDeclaredSize()}, {@link #getDefinedPoints()} and 
+ * {@link #getLastDefined()}) describe where reading stopped.</p>
+ * 
+ * @author Alex Chantavy
+ * @author Jon Lai
+ */
+public final class PolygonModel {
+	private final int code;
+	private final int declared;   // number of vertices on the first line, 0 if not read
+	private final int defined;    // number of points defined, reported by error 7
+	private final Vertex lastDefined; // vertex that caused error 12 or 14
+	private final PackedPolygon polygon; // null unless valid
+	private volatile Vertex[] vertices;  // created from the polygon when first asked for
+	
+	private PolygonModel(int code, int declared, int defined, Vertex lastDefined, 
+			Vertex[] vertices, PackedPolygon polygon) {
+		this.code = code;
+		this.declared = declared;
+		this.defined = defined;
+		this.lastDefined = lastDefined;
+		this.vertices = vertices;
+		this.polygon = polygon;
+	}
+	
+	/**
+	 * Creates a model for an error, without vertices.
+	 */
+	static PolygonModel error(int code, int declared, int defined, Vertex lastDefined) {
+		return new PolygonModel(code, declared, defined, lastDefined, null, null);
+	}
+	
+	/**
+	 * Creates a model for a valid polygon that was read straight into coordinate arrays.  The 
+	 * vertex objects are only created if {@link #getVertices()} or {@link #getBoundary()} is called.
+	 * @param polygon The simple polygon without duplicate points
+	 */
+	static PolygonModel valid(PackedPolygon polygon) {
+		int n = polygon.size();
+		return new PolygonModel(n, n, n, null, null, polygon);
+	}
+	
+	/**
+	 * Reads a polygon text file with the limits of the applet, like {@link Polygon#input(String)}.
+	 * @param address The URL
+	 * @return The polygon, or the error that stopped reading it
+	 */
+	public static PolygonModel parse(String address) {
+		return parse(address, true);
+	}
+	
+	/**
+	 * Reads a polygon text file without the limits of the applet, like {@link Polygon#inputLarge(String)}.
+	 * @param address The URL
+	 * @return The polygon, or the error that stopped reading it
+	 */
+	public static PolygonModel parseLarge(String address) {
+		return parse(address, false);
+	}
+	
+	/**
+	 * Checks the address, opens it and reads the polygon with {@link #read(BufferedReader, boolean)}, 
+	 * or with {@link MappedPolygonReader} if it is a local file.
+	 * @param address The URL
+	 * @param limits Whether to apply the limits of the applet: {@link Polygon#MAX_N} vertices and 
+	 * coordinates within {@link Polygon#MAX_X} and {@link Polygon#MAX_Y}
+	 * @return The polygon, or the error that stopped reading it
+	 */
+	public static PolygonModel parse(String address, boolean limits) {
+		if(address.length() == 0){ // no address entered
+			return error(-1, 0, 0, null); //error code for blank
+		}
+		else if(address.length() > Polygon.MAX_URLCHARS){  //more then 1000 characters in url 
+			return error(-5, 0, 0, null); //error code for more than 1000 chars
+		}
+		else if(!address.endsWith(".txt")) {
+			return error(-11, 0, 0, null);  //error code for invalid file extension
+		}
+		address = VerifyString.verifyStrings(address);	//verify string sanitize
+		try{
+			URL targetURL = new URL(address);  		// input String to URL
+			File file = MappedPolygonReader.toFile(targetURL);
+			if (file != null) {
+				return MappedPolygonReader.read(file, limits); // local files are mapped instead of streamed
+			}
+			URLConnection connection = targetURL.openConnection();  		//connects to URL and input file
+			BufferedReader inputStream = new BufferedReader(new InputStreamReader(connection.getInputStream()));
+			try {
+				return read(inputStream, limits);
+			}
+			finally {
+				inputStream.close();
+			}
+		}
+		catch(MalformedURLException e){
+			return error(-2, 0, 0, null);
+		}
+		catch(FileNotFoundException g){
+			return error(-3, 0, 0, null);
+		}	
+  		catch(IOException f){
+			return error(-4, 0, 0, null); // file is denied retrieval
+		}
+	}
+	
+	/**
+	 * Reads a polygon from the lines of a text file: the number of vertices n on the first line, 
+	 * then n lines holding the x and y coordinates of a vertex separated by a tab, in clockwise order.
+	 * Duplicate points are found with a hash set.  Once all the points are read the boundary is
+	 * checked for self intersections with {@link SimplicitySweep}.
+	 * @param inputStream The lines of the file
+	 * @param limits Whether to apply the limits of the applet: {@link Polygon#MAX_N} vertices and 
+	 * coordinates within {@link Polygon#MAX_X} and {@link Polygon#MAX_Y}
+	 * @return The polygon, or the error that stopped reading it
+	 * @throws IOException If the lines cannot be read
+	 */
+	public static PolygonModel read(BufferedReader inputStream, boolean limits) throws IOException {
+		Integer n = null;
+		HashSet<Vertex> defined = new HashSet<Vertex>();
+		Vertex[] vertices = null;
+		int declared = 0;
+		int eof = 0; // end of file
+		int count = 0;
+		String currentLine = "";  //Used to Store input Lines
+		while (true) {
+			try {
+				currentLine = inputStream.readLine();  //reads the next line of input, breaks at \n or \r allows for both cases 
+				if(count == 0){//first integer tells us the number of vertices
+					declared = Integer.parseInt(currentLine);
+					if (declared < 3) {
+						return error(-10, declared, 0, null); //error code for n specified less than 3
+					}
+					else if (limits && declared > Polygon.MAX_N){
+						return error(-8, declared, 0, null); // error code for n > 100
+					}
+					vertices = new Vertex[declared];
+					eof = declared + 1;
+				}
+				if(count == eof) {
+					//no need to add vertices anymore, so check the boundary of the polygon
+					PackedPolygon polygon = new PackedPolygon(vertices);
+					if (!SimplicitySweep.isSimple(polygon)) {
+						return error(-13, declared, count-1, null); //error 13: polygon defined is not a simple polygon.  That is,
+						                                            // the line segments of its boundary intersect each other.
+					}
+					return new PolygonModel(n, declared, count-1, null, vertices, polygon);
+				}
+				if (currentLine.contains("\t")){  //input contains a tab 
+					String []  parts= currentLine.split("\t");  //split string at tab
+					// Create a new Vertex with the coordinates specified by the text file
+					// and with an ID number telling its clockwise order.  
+					double x_coord = Double.parseDouble(parts[0]);
+					double y_coord = Double.parseDouble(parts[1]);
+					Vertex toBeAdded= new Vertex(x_coord, y_coord, count-1);
+					if (limits && (Math.abs(x_coord) > Polygon.MAX_X || Math.abs(y_coord) > Polygon.MAX_Y)) {
+						return error(-14, declared, count-1, toBeAdded); // error 14: vertex out of drawable region
+					}
+					if (!defined.add(toBeAdded)) {
+						return error(-12, declared, count-1, toBeAdded);  // error 12: duplicate points in the text file
+					}
+					vertices[count-1] = toBeAdded;
+				}	
+				else n = Integer.parseInt(currentLine); //parse initial value n
+			}
+			catch (NullPointerException e) {
+				return error(-7, declared, count-1, null); //error that not all points are specified
+			}
+			catch(NumberFormatException g){
+				return error(-6, declared, Math.max(count-1, 0), null); // file contains noninteger character
+			}
+			catch(ArrayIndexOutOfBoundsException g){
+				return error(-6, declared, count-1, null); // a line with a tab but only one number
+			}
+			count++;
+		}
+	}
+	
+	/**
+	 * Creates a model of the given vertices and checks them the same way as a file read without 
+	 * limits: at least 3 vertices (error -10), no duplicate points (error -12) and a simple 
+	 * boundary (error -13).  The vertices are copied and renumbered in the given order.
+	 * @param vertices The vertices of the polygon in clockwise order
+	 * @return The polygon, or the error found in it
+	 */
+	public static PolygonModel of(Vertex[] vertices) {
+		int n = vertices.length;
+		if (n < 3) {
+			return error(-10, n, 0, null);
+		}
+		Vertex[] copy = new Vertex[n];
+		HashSet<Vertex> defined = new HashSet<Vertex>();
+		for (int i = 0; i < n; i++) {
+			copy[i] = new Vertex(vertices[i].xaxis, vertices[i].yaxis, i);
+			if (!defined.add(copy[i])) {
+				return error(-12, n, i, copy[i]);
+			}
+		}
+		PackedPolygon polygon = new PackedPolygon(copy);
+		if (!SimplicitySweep.isSimple(polygon)) {
+			return error(-13, n, n, null);
+		}
+		return new PolygonModel(n, n, n, null, copy, polygon);
+	}
+	
+	/**
+	 * Creates a model of a packed polygon, such as one read from a {@link PolygonArchive}, and 
+	 * checks it the same way as {@link #of(Vertex[])}.  The coordinate arrays of the polygon 
+	 * are used without copying them, so they must not be changed afterwards.
+	 * @param polygon The polygon, with its vertices in clockwise order
+	 * @return The polygon, or the error found in it
+	 */
+	public static PolygonModel of(PackedPolygon polygon) {
+		int n = polygon.size();
+		if (n < 3) {
+			return error(-10, n, 0, null);
+		}
+		HashSet<Vertex> defined = new HashSet<Vertex>();
+		for (int i = 0; i < n; i++) {
+			Vertex vertex = new Vertex(polygon.x(i), polygon.y(i), i);
+			if (!defined.add(vertex)) {
+				return error(-12, n, i, vertex);
+			}
+		}
+		if (!SimplicitySweep.isSimple(polygon)) {
+			return error(-13, n, n, null);
+		}
+		return valid(polygon);
+	}
+	
+	/**
+	 * @return The number of vertices if the polygon is valid, otherwise a negative error code
+	 */
+	public int getCode() {
+		return code;
+	}
+	
+	/**
+	 * @return Whether the polygon was read without errors
+	 */
+	public boolean isValid() {
+		return polygon != null;
+	}
+	
+	/**
+	 * Returns the number of vertices given on the first line of the file, which is also the 
+	 * number of vertices the file wanted for errors 7 and 8.
+	 * @return The declared number of vertices, 0 if the first line was not read
+	 */
+	public int getDeclaredSize() {
+		return declared;
+	}
+	
+	/**
+	 * Used for error reporting when not all lines have been defined.  I.e,
+	 * when the text file says n = 10 but only 8 lines are defined.
+	 * In that case, this method would return 8.
+	 * @return The number of points defined by the text file
+	 */
+	public int getDefinedPoints() {
+		return defined;
+	}
+	
+	/**
+	 * @return The duplicate vertex of error 12 or the vertex out of bounds of error 14, otherwise null
+	 */
+	public Vertex getLastDefined() {
+		return lastDefined;
+	}
+	
+	/**
+	 * Returns a copy of the vertices of the polygon, so that changing the array does not change the model.
+	 * @return The polygon's vertices in clockwise order, null if the polygon is not valid
+	 */
+	public Vertex[] getVertices() {
+		return polygon == null ? null : vertices().clone();
+	}
+	
+	/**
+	 * Returns the vertices of a valid polygon, creating them the first time.  Two threads may
+	 * both create them, but they create equal arrays and either one may be kept.
+	 */
+	private Vertex[] vertices() {
+		Vertex[] result = vertices;
+		if (result == null) {
+			result = new Vertex[polygon.size()];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = new Vertex(polygon.x(i), polygon.y(i), i);
+			}
+			vertices = result;
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the line segments that constitute the boundary of the polygon, in a new list.
+	 * @return The boundary of the polygon, null if the polygon is not valid
+	 */
+	public ArrayList<Chord> getBoundary() {
+		if (polygon == null) {
+			return null;
+		}
+		Vertex[] vertices = vertices();
+		ArrayList<Chord> boundary = new ArrayList<Chord>(vertices.length);
+		for (int index = 0; index < vertices.length; index++) {
+			boundary.add(new Chord(vertices[index], vertices[(index + 1) % vertices.length]));
+		}
+		return boundary;
+	}
+	
+	/**
+	 * Returns the polygon packed into coordinate arrays for the index based engines.  The packed
+	 * polygon is built once, when the model is read, and is never changed.
+	 * @return The packed polygon, null if the polygon is not valid
+	 */
+	public PackedPolygon getPolygon() {
+		return polygon;
+	}
+	
+	/**
+	 * Generates a triangulation whose maximum length diagonal is as small as possible 
+	 * with {@link IntervalTriangulator}.  
+	 * @return The n-3 diagonals from least to greatest length, null if the polygon is not valid
+	 */
+	public ArrayList<Chord> optimalTriangulation() {
+		return polygon == null ? null : IntervalTriangulator.optimalTriangulation(vertices(), getBoundary());
+	}
+}
@@ -0,0 +1,51 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+
+/**
+ * Receives progress reports from a running triangulation search.  Reports arrive on the
+ * thread running the search, so a listener that updates a user interface must hand them over 
+ * to the user interface thread itself.
+ * @see ThrottledProgress
+ * @author Alex Chantavy
+ */
+public interface ProgressListener {
+	
+	/**
+	 * Called when the search starts trying a new maximum length chord.
+	 * @param max_chord Index of the chord in the sorted diagonals being tried as the maximum, -1 
+	 * when the search does not try chords one at a time
+	 * @param percent How far the search has progressed, from 0 to 100
+	 */
+	void maxChordStarted(int max_chord, int percent);
+	
+	/**
+	 * Called with a combination of diagonal indices the search is trying.  The array is
+	 * reused by the search and must be copied if it is kept.
+	 * @param indices The indices of the combination in the sorted diagonals
+	 */
+	void combinationTried(int[] indices);
+}
@@ -0,0 +1,346 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.util.Random;
+
+/**
+ * <p>Determines whether the boundary of a polygon intersects itself, in O(n log n) time, with 
+ * the sweep line algorithm of Shamos and Hoey.  For polygons without repeated points, the 
+ * answer is the same as testing every pair of boundary edges with 
+ * {@link Chord#intersects(Chord, Chord)}, which is what 
+ * {@link Polygon#input(String)} used to do: two edges that share a vertex never count as 
+ * intersecting, and any other contact, including a vertex touching an edge, does.</p>
+ * 
+ * <p>A horizontal line sweeps down over the vertices in the order higher first, then further 
+ * left.  The status holds the edges the line currently crosses, ordered from left to right 
+ * with exact orientation tests, in a treap threaded with each edge's neighbors.  An edge is 
+ * tested against its neighbors in the status when it is inserted, and its two neighbors are 
+ * tested against each other when it is removed.  The highest intersection makes two edges 
+ * neighbors before the sweep reaches it, so it is always found.</p>
+ * 
+ * <p>Two vertices at the same point make a polygon not simple, which 
+ * {@link Polygon#input(String)} reports earlier as error -12; here they are found next to 
+ * each other in the sweep order.  The other case the neighbor tests cannot see is a fold, 
+ * where the boundary turns straight back on itself at a vertex: the two edges there overlap 
+ * but share a vertex, and can hide the edge between them from the edges around.  A fold 
+ * always puts a vertex on the interior of an edge, so folds are looked for first, in linear 
+ * time.</p>
+ * 
+ * <p>Polygons with a NaN or infinite coordinate cannot be put in sweep order, so their edges are
+ * tested in pairs instead.</p>
+ * 
+ * @source Michael Ian Shamos and Dan Hoey, <i>Geometric Intersection Problems</i>.  17th IEEE 
+ * Symposium on Foundations of Computer Science, 1976
+ * @author Alex Chantavy
+ */
+public class SimplicitySweep {
+	private static final int NONE = -1;
+	
+	private final PackedPolygon polygon;
+	private final int n;
+	private final int[] upper, lower;
+	private int[] found = null;
+	
+	// the status: a treap of edges ordered left to right, threaded with each edge's neighbors
+	private final int[] left, right, parent, priority, prev, next;
+	private int root = NONE;
+	
+	private SimplicitySweep(PackedPolygon polygon) {
+		this.polygon = polygon;
+		this.n = polygon.size();
+		upper = new int[n];
+		lower = new int[n];
+		for (int e = 0; e < n; e++) {
+			int f = e + 1 == n ? 0 : e + 1;
+			upper[e] = before(e, f) ? e : f;
+			lower[e] = before(e, f) ? f : e;
+		}
+		left = new int[n];
+		right = new int[n];
+		parent = new int[n];
+		priority = new int[n];
+		prev = new int[n];
+		next = new int[n];
+		Random random = new Random(n);
+		for (int e = 0; e < n; e++) {
+			priority[e] = random.nextInt();
+		}
+	}
+	
+	/**
+	 * Determines whether the boundary of the polygon does not intersect itself.
+	 * @param polygon The polygon
+	 * @return true if no two boundary edges without a common vertex intersect
+	 */
+	public static boolean isSimple(PackedPolygon polygon) {
+		return findIntersection(polygon) == null;
+	}
+	
+	/**
+	 * Finds two boundary edges that intersect, if there are any.
+	 * @param polygon The polygon
+	 * @return The two edges {e, f}, where edge e runs from vertex e to vertex e+1, or null if the 
+	 * polygon is simple
+	 */
+	public static int[] findIntersection(PackedPolygon polygon) {
+		SimplicitySweep sweep = new SimplicitySweep(polygon);
+		sweep.sweep();
+		return sweep.found;
+	}
+	
+	private void sweep() {
+		if (!polygon.isFinite()) {
+			testPairs(); // the sweep cannot order NaN or infinite coordinates
+			return;
+		}
+		if (n > 3 && findFold()) {
+			return;
+		}
+		int[] order = polygon.sweepOrder();
+		for (int k = 1; k < n; k++) {
+			int a = order[k - 1], b = order[k];
+			if (polygon.x(a) == polygon.x(b) && polygon.y(a) == polygon.y(b)) {
+				found = pair(a, b); // the edges from a and from b start at the same point
+				return;
+			}
+		}
+		for (int v : order) {
+			int before = v == 0 ? n - 1 : v - 1; // edges (v-1, v) and (v, v+1)
+			// remove the edges that end here, then insert the ones that start here
+			if ((lower[before] == v && remove(before)) || (lower[v] == v && remove(v))) {
+				return;
+			}
+			if ((upper[before] == v && insert(before)) || (upper[v] == v && insert(v))) {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Orders two edges the sweep line crosses from left to right, by testing the upper end point 
+	 * of the edge that starts lower against the other.
+	 */
+	private int compare(int e, int f) {
+		if (e == f) {
+			return 0;
+		}
+		if (upper[e] != upper[f] && before(upper[e], upper[f])) {
+			return -compare(f, e);
+		}
+		int o = east(upper[f], lower[f], upper[e]);
+		if (o == 0) {
+			o = east(upper[f], lower[f], lower[e]);
+		}
+		if (o == 0) {
+			return e < f ? -1 : 1; // collinear edges overlap, which the neighbor test reports
+		}
+		return o;
+	}
+	
+	/**
+	 * Inserts edge e into the status and tests it against its new neighbors.
+	 * @return true if an intersection was found
+	 */
+	private boolean insert(int e) {
+		left[e] = right[e] = NONE;
+		int p = NONE;
+		boolean leftOfP = false;
+		for (int node = root; node != NONE; node = leftOfP ? left[node] : right[node]) {
+			p = node;
+			leftOfP = compare(e, node) < 0;
+		}
+		parent[e] = p;
+		if (p == NONE) {
+			root = e;
+			prev[e] = next[e] = NONE;
+		}
+		else if (leftOfP) {
+			left[p] = e;
+			next[e] = p;
+			prev[e] = prev[p];
+		}
+		else {
+			right[p] = e;
+			prev[e] = p;
+			next[e] = next[p];
+		}
+		if (prev[e] != NONE) {
+			next[prev[e]] = e;
+		}
+		if (next[e] != NONE) {
+			prev[next[e]] = e;
+		}
+		while (parent[e] != NONE && priority[e] > priority[parent[e]]) {
+			rotateUp(e);
+		}
+		return (prev[e] != NONE && test(prev[e], e)) || (next[e] != NONE && test(e, next[e]));
+	}
+	
+	/**
+	 * Removes edge e from the status and tests the neighbors it separated.
+	 * @return true if an intersection was found
+	 */
+	private boolean remove(int e) {
+		while (left[e] != NONE || right[e] != NONE) {
+			if (left[e] == NONE) {
+				rotateUp(right[e]);
+			}
+			else if (right[e] == NONE || priority[left[e]] > priority[right[e]]) {
+				rotateUp(left[e]);
+			}
+			else {
+				rotateUp(right[e]);
+			}
+		}
+		replace(parent[e], e, NONE);
+		int l = prev[e], r = next[e];
+		if (l != NONE) {
+			next[l] = r;
+		}
+		if (r != NONE) {
+			prev[r] = l;
+		}
+		return l != NONE && r != NONE && test(l, r);
+	}
+	
+	/**
+	 * Rotates node x above its parent, keeping the left to right order.
+	 */
+	private void rotateUp(int x) {
+		int p = parent[x];
+		if (left[p] == x) {
+			left[p] = right[x];
+			if (right[x] != NONE) {
+				parent[right[x]] = p;
+			}
+			right[x] = p;
+		}
+		else {
+			right[p] = left[x];
+			if (left[x] != NONE) {
+				parent[left[x]] = p;
+			}
+			left[x] = p;
+		}
+		replace(parent[p], p, x);
+		parent[x] = parent[p];
+		parent[p] = x;
+	}
+	
+	/**
+	 * Puts node x where child used to be under p, or at the root if p is NONE.
+	 */
+	private void replace(int p, int child, int x) {
+		if (p == NONE) {
+			root = x;
+		}
+		else if (left[p] == child) {
+			left[p] = x;
+		}
+		else {
+			right[p] = x;
+		}
+	}
+	
+	/**
+	 * Looks for a vertex where the boundary doubles back along itself.  If the shorter of the two
+	 * edges there ends at vertex z, z lies inside the longer edge, and so does the next edge 
+	 * from z, which shares no vertex with the longer edge when n &gt; 3.
+	 * @return true if a fold was found
+	 */
+	private boolean findFold() {
+		for (int w = 0; w < n; w++) {
+			int u = w == 0 ? n - 1 : w - 1;
+			int z = w + 1 == n ? 0 : w + 1;
+			double ux = polygon.x(u) - polygon.x(w), uy = polygon.y(u) - polygon.y(w);
+			double zx = polygon.x(z) - polygon.x(w), zy = polygon.y(z) - polygon.y(w);
+			// collinear and on the same side of w: one edge lies along the other
+			if (east(u, w, z) == 0 && ((ux > 0) == (zx > 0) && (ux < 0) == (zx < 0)) &&
+					((uy > 0) == (zy > 0) && (uy < 0) == (zy < 0))) {
+				if (ux * ux + uy * uy > zx * zx + zy * zy) { // z lies inside edge (u, w)
+					found = pair(u, z); // against edge (z, z+1)
+				}
+				else { // u lies inside edge (w, z)
+					found = pair(w, u == 0 ? n - 1 : u - 1); // against edge (u-1, u)
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Tests every pair of edges in O(n<sup>2</sup>) time, as {@link Polygon#input(String)} used to.
+	 */
+	private void testPairs() {
+		for (int e = 0; e < n; e++) {
+			for (int f = e + 1; f < n; f++) {
+				if (test(e, f)) {
+					return;
+				}
+			}
+		}
+	}
+	
+	private static int[] pair(int e, int f) {
+		return new int[] {Math.min(e, f), Math.max(e, f)};
+	}
+	
+	/**
+	 * Tests two edges, and records them if they intersect without sharing a vertex.
+	 */
+	private boolean test(int e, int f) {
+		int eNext = e + 1 == n ? 0 : e + 1;
+		int fNext = f + 1 == n ? 0 : f + 1;
+		if (eNext == f || fNext == e) {
+			return false; // consecutive edges only meet at their common vertex
+		}
+		if (polygon.intersects(e, eNext, f, fNext)) {
+			found = pair(e, f);
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Determines if the sweep reaches vertex a before vertex b, in the order of 
+	 * {@link PackedPolygon#sweepOrder()}: higher, or as high and further left, or at the same 
+	 * point and with a smaller index.
+	 */
+	private boolean before(int a, int b) {
+		return polygon.above(a, b) || (!polygon.above(b, a) && a < b);
+	}
+	
+	/**
+	 * Returns 1 if vertex c is east of the line from a down to b, -1 if west, 0 if on it.
+	 */
+	private int east(int a, int b, int c) {
+		// heading down from a to b, the right hand side is west
+		double d = Orientation.direction(polygon.x(a), polygon.y(a), polygon.x(b), polygon.y(b), 
+				polygon.x(c), polygon.y(c));
+		return d > 0 ? -1 : d < 0 ? 1 : 0;
+	}
+}
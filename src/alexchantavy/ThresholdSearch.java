@@ -0,0 +1,149 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.util.ArrayList;
+
+/**
+ * <p>Finds the optimal triangulation by binary searching the sorted array of diagonals.</p>
+ * 
+ * <p>{@link Polygon#optimalTriangulation(Vertex[], ArrayList)} walks the sorted diagonals
+ * A[n-4], A[n-3], ... and runs an exhaustive search for each one.  Whether the polygon can be 
+ * triangulated using only diagonals no longer than some length L is monotone in L, so instead
+ * we binary search for the smallest A[i].length that passes the polynomial feasibility check
+ * {@link IntervalTriangulator#triangulate(DiagonalMatrix)}.  This takes O(log D) checks of 
+ * O(n<sup>3</sup>) time each, where D is the number of diagonals.</p>
+ * 
+ * <p>The number of feasibility checks ("probes") is recorded so the search can be compared 
+ * against the linear scan, which runs one exhaustive search for every index it visits.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class ThresholdSearch {
+	private Vertex[] vertices;
+	private int probes = 0;
+	private int maxChordIndex = -1;
+	private int scanStart = 0;
+	
+	/**
+	 * Creates a threshold search for the given polygon.
+	 * @param vertices Array of vertices of the polygon
+	 * @param boundary The set of line segments that constitute the boundary of the polygon
+	 */
+	public ThresholdSearch(Vertex[] vertices, ArrayList<Chord> boundary) {
+		this.vertices = vertices;
+	}
+	
+	/**
+	 * Generates a triangulation whose maximum length diagonal is as small as possible.
+	 * @return The n-3 diagonals of the triangulation, sorted from least to greatest length.
+	 * Empty if the polygon is a triangle, null if no triangulation exists.
+	 */
+	public ArrayList<Chord> solve() {
+		PackedPolygon polygon = new PackedPolygon(vertices);
+		DiagonalMatrix diagonal = new DiagonalMatrix(polygon);
+		ArrayList<Chord> allDiagonals = diagonal.toSortedChordList(polygon, vertices);
+		int n = vertices.length;
+		probes = 0;
+		maxChordIndex = -1;
+		if (n <= 3) {
+			return new ArrayList<Chord>();
+		}
+		
+		// a triangulation needs n-3 diagonals, so A[n-4] is the shortest possible maximum
+		scanStart = n-3-1;
+		int low = scanStart;
+		int high = allDiagonals.size() - 1;
+		int[][] found = null;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			Chord probe = allDiagonals.get(mid);
+			int[][] split = feasible(polygon.lengthKey(probe.v1.getID(), probe.v2.getID()), allDiagonals, polygon);
+			if (split != null) {
+				found = split;
+				maxChordIndex = mid;
+				high = mid - 1;
+			}
+			else {
+				low = mid + 1;
+			}
+		}
+		if (found == null) {
+			return null;
+		}
+		return IntervalTriangulator.collectTriangulation(found, diagonal, vertices);
+	}
+	
+	/**
+	 * Determines whether the polygon can be triangulated with diagonals no longer than threshold.
+	 * @param threshold The {@link PackedPolygon#lengthKey(int, int) length key} of the longest 
+	 * diagonal allowed
+	 * @param allDiagonals Sorted ArrayList containing all diagonals of the polygon
+	 * @param polygon The polygon
+	 * @return The split table of a triangulation, or null if none exists
+	 */
+	private int[][] feasible(long threshold, ArrayList<Chord> allDiagonals, PackedPolygon polygon) {
+		probes++;
+		DiagonalMatrix allowed = new DiagonalMatrix(vertices.length);
+		for (Chord c : allDiagonals) {
+			if (polygon.lengthKey(c.v1.getID(), c.v2.getID()) > threshold) {
+				break;
+			}
+			allowed.set(c.v1.getID(), c.v2.getID());
+		}
+		return IntervalTriangulator.triangulate(allowed);
+	}
+	
+	/**
+	 * Returns the number of feasibility checks the last call to {@link #solve()} made.
+	 * @return The number of probes
+	 */
+	public int getProbes() {
+		return probes;
+	}
+	
+	/**
+	 * Returns the index in the sorted diagonal array of the maximum length chord found by the
+	 * last call to {@link #solve()}, or -1 if there was none.
+	 * @return The index of the maximum length chord
+	 */
+	public int getMaxChordIndex() {
+		return maxChordIndex;
+	}
+	
+	/**
+	 * Returns the number of exhaustive searches the linear scan of 
+	 * {@link Polygon#optimalTriangulation(Vertex[], ArrayList)} would need to reach the same 
+	 * maximum length chord.  Ties in length may let the binary search stop at a smaller index
+	 * than the scan, so this is a lower bound.
+	 * @return The number of indices the linear scan visits
+	 */
+	public int getScanLength() {
+		if (maxChordIndex < 0) {
+			return 0;
+		}
+		return maxChordIndex - scanStart + 1;
+	}
+}
@@ -0,0 +1,74 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+
+/**
+ * A {@link ProgressListener} that forwards at most one combination every given number of 
+ * milliseconds to another listener, so that reporting progress does not slow the search down.
+ * The clock is only read once every few hundred combinations.  Every 
+ * {@link #maxChordStarted(int, int)} report is forwarded.
+ * @author Alex Chantavy
+ */
+public class ThrottledProgress implements ProgressListener {
+	private static final int CLOCK_MASK = 255; // read the clock every 256 combinations
+	
+	private final ProgressListener listener;
+	private final long intervalNanos;
+	private long nextReport;
+	private int calls = 0;
+	
+	/**
+	 * Creates a listener that samples combinations for the given listener.
+	 * @param listener The listener to forward reports to
+	 * @param intervalMillis The minimum time between two forwarded combinations
+	 */
+	public ThrottledProgress(ProgressListener listener, long intervalMillis) {
+		this.listener = listener;
+		this.intervalNanos = intervalMillis * 1000000L;
+		this.nextReport = System.nanoTime();
+	}
+	
+	/**
+	 * Forwards the report.
+	 */
+	public void maxChordStarted(int max_chord, int percent) {
+		listener.maxChordStarted(max_chord, percent);
+	}
+	
+	/**
+	 * Forwards the combination if the interval has passed since the last one.
+	 */
+	public void combinationTried(int[] indices) {
+		if ((calls++ & CLOCK_MASK) != 0) {
+			return;
+		}
+		long now = System.nanoTime();
+		if (now - nextReport >= 0) {
+			nextReport = now + intervalNanos;
+			listener.combinationTried(indices);
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.util.ArrayList;
+
+/**
+ * <p>Finds the optimal triangulation of a polygon without any user interface.  The applet and 
+ * headless programs both run the search through this class and follow it with a 
+ * {@link ProgressListener}.</p>
+ * 
+ * <p>The search is done by one of several {@link Strategy strategies}.  They all find a 
+ * triangulation with the same maximum length chord; the exhaustive, parallel and 
+ * branch-and-bound strategies also return exactly the same chords.</p>
+ * 
+ * @author Alex Chantavy
+ */
+public class TriangulationSolver {
+	
+	/**
+	 * The algorithms the solver can use.
+	 */
+	public enum Strategy {
+		/** The exhaustive search of {@link Polygon#optimalTriangulation(Vertex[], ArrayList)}. */
+		EXHAUSTIVE,
+		/** The exhaustive search run on all cores by {@link ParallelSearch}. */
+		PARALLEL,
+		/** The backtracking search of {@link BranchAndBound}. */
+		BRANCH_AND_BOUND,
+		/** The binary search over diagonal lengths of {@link ThresholdSearch}. */
+		THRESHOLD,
+		/** The dynamic program of {@link IntervalTriangulator}. */
+		INTERVAL_DP
+	}
+	
+	private final Vertex[] vertices;
+	private final ArrayList<Chord> boundary;
+	private Strategy strategy = Strategy.EXHAUSTIVE;
+	private ProgressListener listener = null;
+	private volatile boolean cancelled = false;
+	private volatile ParallelSearch parallel = null;
+	
+	/**
+	 * Creates a solver for the given polygon.
+	 * @param vertices Array of vertices of the polygon
+	 * @param boundary The set of line segments that constitute the boundary of the polygon
+	 */
+	public TriangulationSolver(Vertex[] vertices, ArrayList<Chord> boundary) {
+		this.vertices = vertices;
+		this.boundary = boundary;
+	}
+	
+	/**
+	 * Selects the algorithm used by {@link #solve()}.  The default is {@link Strategy#EXHAUSTIVE}.
+	 * @param strategy The algorithm to use
+	 */
+	public void setStrategy(Strategy strategy) {
+		this.strategy = strategy;
+	}
+	
+	/**
+	 * Registers a listener for progress reports.  Combinations are passed on at most once
+	 * every intervalMillis milliseconds.
+	 * @param listener The listener, or null for no reports
+	 * @param intervalMillis The minimum time between two reported combinations
+	 */
+	public void setProgressListener(ProgressListener listener, long intervalMillis) {
+		this.listener = (listener == null) ? null : new ThrottledProgress(listener, intervalMillis);
+	}
+	
+	/**
+	 * Stops a running search.  {@link #solve()} then throws an InterruptedException.
+	 */
+	public void cancel() {
+		cancelled = true;
+		ParallelSearch search = parallel;
+		if (search != null) {
+			search.cancel();
+		}
+	}
+	
+	/**
+	 * Generates the optimal triangulation of the polygon with the selected strategy.
+	 * @return The optimal triangulation, sorted from least to greatest length.  null if the polygon
+	 * cannot be triangulated.
+	 * @throws InterruptedException if the search was cancelled or the thread was interrupted
+	 */
+	public ArrayList<Chord> solve() throws InterruptedException {
+		ArrayList<Chord> optimum;
+		report(-1, 0);
+		switch (strategy) {
+		case INTERVAL_DP:
+			optimum = IntervalTriangulator.optimalTriangulation(vertices, boundary);
+			break;
+		case THRESHOLD:
+			optimum = new ThresholdSearch(vertices, boundary).solve();
+			break;
+		default:
+			optimum = search();
+		}
+		checkCancelled();
+		report(-1, 100);
+		return optimum;
+	}
+	
+	/**
+	 * Runs one of the strategies that work on the sorted diagonal array.
+	 */
+	private ArrayList<Chord> search() throws InterruptedException {
+		PackedPolygon polygon = new PackedPolygon(vertices);
+		ArrayList<Chord> allDiagonals = new DiagonalMatrix(polygon).toSortedChordList(polygon, vertices);
+		CrossingMatrix crossings = new CrossingMatrix(polygon, allDiagonals);
+		int n = vertices.length;
+		if (n <= 3) {
+			return new ArrayList<Chord>();
+		}
+		if (strategy == Strategy.BRANCH_AND_BOUND) {
+			return BranchAndBound.search(n, allDiagonals, crossings);
+		}
+		if (strategy == Strategy.PARALLEL) {
+			ParallelSearch search = new ParallelSearch();
+			parallel = search;
+			checkCancelled(); // ParallelSearch.cancel() only stops searches already running
+			return search.search(n, allDiagonals, crossings);
+		}
+		
+		int start = n-3-1;
+		int end = allDiagonals.size();
+		int num_chords_to_try = end - start; // used for progress reporting
+		for (int i = start; i < end; i++) {
+			report(i, (int)((((double)i-(double)start) / (double)num_chords_to_try) * 100));
+			checkCancelled();
+			ArrayList<Chord> optimum = Polygon.generateTriangulation(i, n, allDiagonals, crossings, listener);
+			if (optimum != null) {
+				return optimum;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Passes a progress report on to the listener, if there is one.
+	 */
+	private void report(int max_chord, int percent) {
+		if (listener != null) {
+			listener.maxChordStarted(max_chord, percent);
+		}
+	}
+	
+	/**
+	 * Throws an InterruptedException if the search should stop.
+	 */
+	private void checkCancelled() throws InterruptedException {
+		if (cancelled || Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+	}
+}
@@ -32,6 +32,8 @@ package alexchantavy;
  * if the Vertex is not associated with a Polygon.  However, if the 
  * Vertex <i>is</i> associated with a Polygon, then the ID number of 
  * the vertex is greater than 0.    
+ * <p>Vertices are immutable: the coordinates and the ID are fixed when 
+ * the Vertex is created.
  * <p>This class also provides methods to compute cross products and 
  * determine relative directions of points.  These methods were implemented
  * from algorithms provided by the Cormen text.
@@ -39,9 +41,9 @@ package alexchantavy;
  * @author Jon Lai
  */
 public class Vertex {
-	double xaxis;
-	double yaxis;
-	private int id;
+	final double xaxis;
+	final double yaxis;
+	private final int id;
 	
 	/**
 	 * Default constructor, create a vertex at (0,0).
@@ -53,21 +55,17 @@ public class Vertex {
 	}
 	
 	/**
-	 * Sets the ID of this Vertex to another id.
-	 * If the ID of this vertex was initialized by a polygon,
-	 * it is not possible to change the id, and the method returns
-	 * false
+	 * Used to set the ID of this Vertex to another id.  Vertices are immutable, so that 
+	 * polygons sharing them can be used by several threads at once, and the ID cannot be
+	 * changed any more.
 	 * @param id The new id
-	 * @return whether the change ID operation was successful
+	 * @return never returns
+	 * @throws UnsupportedOperationException always
+	 * @deprecated Create a new Vertex with {@link #Vertex(double, double, int)} instead
 	 */
+	@Deprecated
 	public boolean setID(int id) {
-		if (this.id > 0 ) {
-			this.id = id;	
-			return true;
-		}
-		else {
-			return false;
-		}
+		throw new UnsupportedOperationException("vertices are immutable, create a new Vertex with id " + id);
 	}
 	
 	/**
@@ -121,6 +119,24 @@ public class Vertex {
 		return (this.xaxis == other.xaxis && this.yaxis == other.yaxis);
 	}
 	
+	/**
+	 * Same as {@link #equals(Vertex)}, so that vertices can be kept in hash based collections.
+	 * @param other The other object
+	 * @return Whether other is a vertex with the same coordinates
+	 */
+	public boolean equals (Object other) {
+		return (other instanceof Vertex) && this.equals((Vertex) other);
+	}
+	
+	/**
+	 * Returns a hash code computed from the coordinates, consistent with {@link #equals(Vertex)}.
+	 */
+	public int hashCode() {
+		// add 0.0 so that -0.0 and 0.0, which are equal, hash the same
+		long bits = Double.doubleToLongBits(xaxis + 0.0) * 31 + Double.doubleToLongBits(yaxis + 0.0);
+		return (int)(bits ^ (bits >>> 32));
+	}
+	
 	/**
 	 * Determines the "cross product" of p1 and p2.
 	 * Cross product is defined in page 1016 in the Cormen textbook 
@@ -169,9 +185,8 @@ public class Vertex {
 	 * @source <i>Introduction to Algorithms, 3rd edition</i>, Cormen, Rivest, Leiserson and Stein, page 1017 
 	 */
 	public static String cw_or_ccw_or_collinear(Vertex p0, Vertex p1, Vertex p2) {
-		Vertex p1_prime = new Vertex(p1.xaxis-p0.xaxis, p1.yaxis-p0.yaxis);  //adjust to use p0 as the origin
-		Vertex p2_prime = new Vertex(p2.xaxis-p0.xaxis, p2.yaxis-p0.yaxis);
-		double crossProduct = Vertex.crossProduct(p1_prime, p2_prime);
+		// cross product of p1 and p2 with p0 as the origin
+		double crossProduct = -Vertex.direction(p0, p1, p2);
 		if (crossProduct > 0) {
 			return "clockwise";
 		}
@@ -234,12 +249,12 @@ public class Vertex {
 	 * @param p0 The first point
 	 * @param p1 The anchor point
 	 * @param p2 The last point
-	 * @return positive if p2 is right, negative if p2 is left, zero if collinear
+	 * @return positive if p2 is right, negative if p2 is left, zero if collinear.  The sign is
+	 * exact, see {@link Orientation}.
 	 */
 	public static double direction (Vertex p0, Vertex p1, Vertex p2) {
-		Vertex p1_prime = new Vertex(p1.xaxis-p0.xaxis, p1.yaxis-p0.yaxis);
-		Vertex p2_prime = new Vertex(p2.xaxis-p0.xaxis, p2.yaxis-p0.yaxis);
-		return Vertex.crossProduct(p2_prime, p1_prime);
+		// cross product of p2 and p1 with p0 as the origin, exact in sign
+		return Orientation.direction(p0.xaxis, p0.yaxis, p1.xaxis, p1.yaxis, p2.xaxis, p2.yaxis);
 	}
 	
 	/**
@@ -250,8 +265,7 @@ public class Vertex {
 	 * @return Whether the three vertices lie on the same line
 	 */
 	public static boolean collinear(Vertex p0, Vertex p1, Vertex p2) {
-		String result = Vertex.cw_or_ccw_or_collinear(p0, p1, p2);
-		return result.equals("collinear");
+		return Vertex.direction(p0, p1, p2) == 0;
 	}
 	
 	/**
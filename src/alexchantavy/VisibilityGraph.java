@@ -0,0 +1,219 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import java.util.Arrays;
+
+/**
+ * <p>Finds every diagonal of a simple polygon by walking a triangulation of it, in 
+ * O(n<sup>2</sup>) time instead of the O(n<sup>3</sup>) of testing each pair of vertices 
+ * against the whole boundary.  Gives exactly the same diagonals as 
+ * {@link PackedPolygon#isDiagonal(int, int)}.</p>
+ * 
+ * <p>The polygon is first triangulated with {@link MonotoneTriangulator}.  Then, from each 
+ * vertex a, the triangles are visited in a depth first search that starts at the triangles 
+ * around a and crosses one triangle edge, a portal, at a time.  The search carries the wedge 
+ * of directions from a that pass through every portal crossed so far, bounded by rays through 
+ * two vertices.  When a triangle is entered, its third vertex is a diagonal end exactly when it 
+ * lies strictly inside the wedge: the open chord then crosses each portal strictly between its
+ * end points, so it stays inside the polygon and touches no vertex or edge.  A vertex on a 
+ * ray is hidden behind the vertex the ray passes through.  The vertex narrows the wedge of the
+ * two portals beyond it, and a portal the wedge misses is not crossed.  The dual graph of the 
+ * triangulation is a tree, so each search visits each triangle at most once.</p>
+ * 
+ * <p>Every test is an exact orientation test, so the answer has no tolerance.  Polygons the 
+ * search does not handle, such as counterclockwise or self intersecting ones, or ones whose 
+ * triangulation has a triangle of zero area, are reported so that the caller can fall back to
+ * testing pairs.</p>
+ * 
+ * @source Leonidas Guibas, John Hershberger, Daniel Leven, Micha Sharir and Robert Tarjan, 
+ * <i>Linear-Time Algorithms for Visibility and Shortest Path Problems Inside Triangulated 
+ * Simple Polygons</i>.  Algorithmica 2, 1987
+ * @author Alex Chantavy
+ */
+public class VisibilityGraph {
+	private final PackedPolygon polygon;
+	private final int n;
+	private final int[] start;     // neighbors of v are at start[v] .. start[v+1]-1
+	private final int[] offset;    // of each neighbor w of v, (w - v) mod n: sorted, which is clockwise
+	private int[] stack = new int[64];
+	
+	private VisibilityGraph(PackedPolygon polygon, int[] diagonals) {
+		this.polygon = polygon;
+		this.n = polygon.size();
+		start = new int[n + 1];
+		offset = new int[2 * n + diagonals.length];
+		for (int v = 0; v < n; v++) {
+			start[v + 1] += 2; // the two boundary edges
+		}
+		for (int end : diagonals) {
+			start[end + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			start[v + 1] += start[v];
+		}
+		int[] fill = Arrays.copyOf(start, n);
+		for (int v = 0; v < n; v++) {
+			offset[fill[v]++] = offset(v, v + 1 == n ? 0 : v + 1);
+			offset[fill[v]++] = offset(v, v == 0 ? n - 1 : v - 1);
+		}
+		for (int k = 0; k < diagonals.length; k += 2) {
+			int a = diagonals[k], b = diagonals[k + 1];
+			offset[fill[a]++] = offset(a, b);
+			offset[fill[b]++] = offset(b, a);
+		}
+		for (int v = 0; v < n; v++) {
+			Arrays.sort(offset, start[v], start[v + 1]);
+		}
+	}
+	
+	/**
+	 * Sets every diagonal of the polygon in the matrix, if the polygon is one the search handles:
+	 * simple, with finite coordinates, in clockwise order, and with a triangulation free of flat 
+	 * triangles.
+	 * @param polygon The polygon
+	 * @param matrix An empty matrix of the polygon's size
+	 * @return true if the diagonals were set, false if the polygon is not handled and the matrix
+	 * was left empty
+	 */
+	static boolean fill(PackedPolygon polygon, DiagonalMatrix matrix) {
+		int n = polygon.size();
+		if (n <= 3) {
+			return true; // a triangle has no diagonals
+		}
+		if (!polygon.isFinite() || !clockwise(polygon) || !SimplicitySweep.isSimple(polygon)) {
+			return false;
+		}
+		VisibilityGraph graph = new VisibilityGraph(polygon, MonotoneTriangulator.diagonals(polygon));
+		if (!graph.triangulated()) {
+			return false;
+		}
+		for (int a = 0; a < n; a++) {
+			graph.search(a, matrix);
+		}
+		return true;
+	}
+	
+	/**
+	 * Determines if the polygon is in clockwise order, from the turn at its lowest vertex, 
+	 * which is convex.
+	 */
+	private static boolean clockwise(PackedPolygon polygon) {
+		int n = polygon.size();
+		int low = 0;
+		for (int v = 1; v < n; v++) {
+			if (polygon.above(low, v)) {
+				low = v;
+			}
+		}
+		return polygon.turn(low == 0 ? n - 1 : low - 1, low, low + 1 == n ? 0 : low + 1) > 0;
+	}
+	
+	/**
+	 * Determines if the triangles around every vertex are clockwise and not flat.  A flat 
+	 * triangle has no inside to walk through.
+	 */
+	private boolean triangulated() {
+		for (int v = 0; v < n; v++) {
+			for (int k = start[v]; k + 1 < start[v + 1]; k++) {
+				if (polygon.turn(v, neighbor(v, k), neighbor(v, k + 1)) <= 0) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Sets the diagonals from vertex a that the search finds.
+	 */
+	private void search(int a, DiagonalMatrix matrix) {
+		int size = 0;
+		for (int k = start[a]; k + 1 < start[a + 1]; k++) {
+			int u = neighbor(a, k), w = neighbor(a, k + 1);
+			if (k > start[a]) {
+				matrix.set(a, u); // an edge of the triangulation that is not on the boundary
+			}
+			size = push(size, u, w, u, w);
+		}
+		while (size > 0) {
+			size -= 4;
+			int p = stack[size], q = stack[size + 1];
+			int s = stack[size + 2], t = stack[size + 3];
+			if (q == p + 1 || (p == n - 1 && q == 0)) {
+				continue; // a boundary edge: nothing lies beyond it
+			}
+			int z = across(p, q);
+			boolean afterS = polygon.turn(a, s, z) > 0;
+			boolean beforeT = polygon.turn(a, t, z) < 0;
+			if (afterS && beforeT) { // strictly inside the wedge: a sees z
+				matrix.set(a, z);
+				size = push(size, p, z, s, z);
+				size = push(size, z, q, z, t);
+			}
+			else if (!afterS) { // at or behind the ray through s, so (p, z) is out of sight
+				size = push(size, z, q, s, t);
+			}
+			else { // at or behind the ray through t, so (z, q) is out of sight
+				size = push(size, p, z, s, t);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the third vertex of the triangle on the far side of the portal (p, q) from the 
+	 * search: the neighbor of p just before q.
+	 */
+	private int across(int p, int q) {
+		int k = Arrays.binarySearch(offset, start[p], start[p + 1], offset(p, q));
+		return neighbor(p, k - 1);
+	}
+	
+	/**
+	 * Returns the neighbor of v at position k of the neighbor array.
+	 */
+	private int neighbor(int v, int k) {
+		int w = v + offset[k];
+		return w >= n ? w - n : w;
+	}
+	
+	private int push(int size, int p, int q, int s, int t) {
+		if (size + 4 > stack.length) {
+			stack = Arrays.copyOf(stack, 2 * stack.length);
+		}
+		stack[size] = p;
+		stack[size + 1] = q;
+		stack[size + 2] = s;
+		stack[size + 3] = t;
+		return size + 4;
+	}
+	
+	/**
+	 * Returns how far w is after v in index order.
+	 */
+	private int offset(int v, int w) {
+		return w >= v ? w - v : w - v + n;
+	}
+}
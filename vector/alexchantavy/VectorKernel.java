@@ -0,0 +1,85 @@
+/* Copyright (c) <2010>, <Alexander Chantavy>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <University of Hawaii at Manoa> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY <Alexander Chantavy> ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <Alexander Chantavy> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package alexchantavy;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * <p>The block loop of {@link EdgeBatch} written with the incubating Vector API, which computes 
+ * as many edges at once as the widest vector registers of the machine hold: two with SSE, 
+ * four with AVX2, eight with AVX-512.  The arithmetic is the same as the scalar loop's, 
+ * operation for operation, so every lane gets exactly the value the scalar loop would.  The 
+ * edges left over after the last full vector are handed to the scalar loop.</p>
+ * 
+ * <p>This class is kept out of <code>src</code> because it needs JDK 16 or higher and the 
+ * <code>jdk.incubator.vector</code> module, both to compile and to run:</p>
+ * 
+ * <pre>
+ * javac --add-modules jdk.incubator.vector -d out src/alexchantavy/*.java vector/alexchantavy/*.java
+ * java --add-modules jdk.incubator.vector -cp out ...
+ * </pre>
+ * 
+ * <p>{@link EdgeBatch} loads it by reflection and uses the scalar loop when it is missing.</p>
+ * 
+ * @author Alex Chantavy
+ */
+final class VectorKernel implements EdgeBatch.Kernel {
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	
+	public void directions(EdgeBatch batch, double ax, double ay, double bx, double by, int start, int from, int to) {
+		double abx = bx - ax, aby = by - ay;
+		double err = Orientation.ERROR_BOUND;
+		DoubleVector vax = DoubleVector.broadcast(SPECIES, ax), vay = DoubleVector.broadcast(SPECIES, ay);
+		DoubleVector vbx = DoubleVector.broadcast(SPECIES, bx), vby = DoubleVector.broadcast(SPECIES, by);
+		DoubleVector vabx = DoubleVector.broadcast(SPECIES, abx), vaby = DoubleVector.broadcast(SPECIES, aby);
+		int k = from;
+		for (int end = from + SPECIES.loopBound(to - from); k < end; k += SPECIES.length()) {
+			int e = start + k;
+			DoubleVector x0 = DoubleVector.fromArray(SPECIES, batch.x0, e);
+			DoubleVector y0 = DoubleVector.fromArray(SPECIES, batch.y0, e);
+			DoubleVector x1 = DoubleVector.fromArray(SPECIES, batch.x1, e);
+			DoubleVector y1 = DoubleVector.fromArray(SPECIES, batch.y1, e);
+			DoubleVector ex = x1.sub(x0), ey = y1.sub(y0);
+			DoubleVector l1 = vax.sub(x0).mul(ey), r1 = ex.mul(vay.sub(y0));
+			DoubleVector l2 = vbx.sub(x0).mul(ey), r2 = ex.mul(vby.sub(y0));
+			DoubleVector l3 = x0.sub(vax).mul(vaby), r3 = vabx.mul(y0.sub(vay));
+			DoubleVector l4 = x1.sub(vax).mul(vaby), r4 = vabx.mul(y1.sub(vay));
+			l1.sub(r1).intoArray(batch.d1, k);
+			l2.sub(r2).intoArray(batch.d2, k);
+			l3.sub(r3).intoArray(batch.d3, k);
+			l4.sub(r4).intoArray(batch.d4, k);
+			l1.abs().add(r1.abs()).mul(err).intoArray(batch.b1, k);
+			l2.abs().add(r2.abs()).mul(err).intoArray(batch.b2, k);
+			l3.abs().add(r3.abs()).mul(err).intoArray(batch.b3, k);
+			l4.abs().add(r4.abs()).mul(err).intoArray(batch.b4, k);
+		}
+		EdgeBatch.SCALAR.directions(batch, ax, ay, bx, by, start, k, to);
+	}
+	
+	public int lanes() {
+		return SPECIES.length();
+	}
+}